@@ -0,0 +1,100 @@
+package com.yushan.analytics_service.client;
+
+import com.yushan.analytics_service.dto.ApiResponse;
+import com.yushan.analytics_service.dto.ChapterDTO;
+import com.yushan.analytics_service.dto.NovelDetailResponseDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Novel and chapter lookups by id that share calls to the content service.
+ * Concurrent lookups of the same id share one in-flight request, and lookups arriving within
+ * {@code window-ms} of each other are merged into one call to the batch endpoints.
+ * Batched calls serve several callers at once, so they do not forward any caller's Authorization header.
+ */
+@Component
+public class CoalescingContentClient {
+
+    @Autowired
+    private ContentServiceClient contentServiceClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.content-client.coalesce.window-ms:5}")
+    private long windowMs = 5;
+
+    @Value("${analytics.content-client.coalesce.max-batch-size:100}")
+    private int maxBatchSize = 100;
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService loaderExecutor;
+    private SingleFlightBatcher<NovelDetailResponseDTO> novels;
+    private SingleFlightBatcher<ChapterDTO> chapters;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "content-client-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        loaderExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        novels = new SingleFlightBatcher<>("novel", ids -> dataOf(contentServiceClient.getNovelsBatch(ids)),
+                NovelDetailResponseDTO::getId, windowMs, maxBatchSize, scheduler, loaderExecutor, meterRegistry);
+        chapters = new SingleFlightBatcher<>("chapter", ids -> dataOf(contentServiceClient.getChaptersBatch(ids)),
+                ChapterDTO::getId, windowMs, maxBatchSize, scheduler, loaderExecutor, meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        loaderExecutor.shutdownNow();
+    }
+
+    /**
+     * Get a novel, or null if it does not exist
+     */
+    public NovelDetailResponseDTO getNovel(Integer novelId) {
+        return novels.loadAll(List.of(novelId)).get(novelId);
+    }
+
+    /**
+     * Get novels by id; novels that do not exist are absent from the result
+     */
+    public Map<Integer, NovelDetailResponseDTO> getNovels(Collection<Integer> novelIds) {
+        return novels.loadAll(novelIds);
+    }
+
+    /**
+     * Get a chapter, or null if it does not exist
+     */
+    public ChapterDTO getChapter(Integer chapterId) {
+        return chapters.loadAll(List.of(chapterId)).get(chapterId);
+    }
+
+    /**
+     * Get chapters by id; chapters that do not exist are absent from the result
+     */
+    public Map<Integer, ChapterDTO> getChapters(Collection<Integer> chapterIds) {
+        return chapters.loadAll(chapterIds);
+    }
+
+    private static <T> List<T> dataOf(ApiResponse<List<T>> response) {
+        if (response != null && response.getCode() != null && response.getCode().equals(200) && response.getData() != null) {
+            return response.getData();
+        }
+        throw new IllegalStateException("Content service returned " + (response != null ? response.getCode() : null));
+    }
+}
@@ -0,0 +1,172 @@
+package com.yushan.analytics_service.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalesces lookups by id into shared batch calls.
+ * A lookup for an id that is already in flight joins the existing future instead of issuing another call
+ * (single-flight). New ids are collected for up to {@code windowMs} and then loaded together with one batch
+ * call, or as soon as {@code maxBatchSize} ids are waiting.
+ *
+ * @param <V> the loaded value; ids the batch call does not return resolve to null
+ */
+class SingleFlightBatcher<V> {
+
+    private final Function<List<Integer>, List<V>> batchLoader;
+    private final Function<V, Integer> idOf;
+    private final long windowMs;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final Executor loaderExecutor;
+
+    private final ConcurrentHashMap<Integer, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Object pendingLock = new Object();
+    private List<Integer> pending = new ArrayList<>();
+    private boolean flushScheduled;
+
+    private final Counter coalescedCounter;
+    private final DistributionSummary batchSize;
+
+    SingleFlightBatcher(String type, Function<List<Integer>, List<V>> batchLoader, Function<V, Integer> idOf,
+                        long windowMs, int maxBatchSize, ScheduledExecutorService scheduler,
+                        Executor loaderExecutor, MeterRegistry meterRegistry) {
+        this.batchLoader = batchLoader;
+        this.idOf = idOf;
+        this.windowMs = windowMs;
+        this.maxBatchSize = Math.max(maxBatchSize, 1);
+        this.scheduler = scheduler;
+        this.loaderExecutor = loaderExecutor;
+        this.coalescedCounter = meterRegistry.counter("content.client.coalesced", "type", type);
+        this.batchSize = DistributionSummary.builder("content.client.batch.size")
+                .description("Ids loaded per batch call")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Load several ids, sharing calls with concurrent lookups. Blocks until every id is resolved.
+     *
+     * @return loaded values by id; ids that do not exist are absent
+     * @throws RuntimeException the failure of a batch call any of the ids depended on
+     */
+    Map<Integer, V> loadAll(Collection<Integer> ids) {
+        Map<Integer, CompletableFuture<V>> futures = new HashMap<>();
+        for (Integer id : new LinkedHashSet<>(ids)) {
+            if (id != null) {
+                futures.put(id, load(id));
+            }
+        }
+        Map<Integer, V> result = new HashMap<>();
+        for (Map.Entry<Integer, CompletableFuture<V>> entry : futures.entrySet()) {
+            V value = await(entry.getValue());
+            if (value != null) {
+                result.put(entry.getKey(), value);
+            }
+        }
+        return result;
+    }
+
+    private CompletableFuture<V> load(Integer id) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(id, created);
+        if (existing != null) {
+            coalescedCounter.increment();
+            return existing;
+        }
+
+        List<Integer> fullBatch = null;
+        synchronized (pendingLock) {
+            pending.add(id);
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = pending;
+                pending = new ArrayList<>();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(this::flushPending, windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (fullBatch != null) {
+            dispatch(fullBatch);
+        }
+        return created;
+    }
+
+    private void flushPending() {
+        List<Integer> batch;
+        synchronized (pendingLock) {
+            flushScheduled = false;
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    private void dispatch(List<Integer> ids) {
+        batchSize.record(ids.size());
+        loaderExecutor.execute(() -> {
+            try {
+                Map<Integer, V> loaded = new HashMap<>();
+                List<V> values = batchLoader.apply(ids);
+                if (values != null) {
+                    for (V value : values) {
+                        Integer id = value != null ? idOf.apply(value) : null;
+                        if (id != null) {
+                            loaded.put(id, value);
+                        }
+                    }
+                }
+                release(ids).forEach((id, future) -> future.complete(loaded.get(id)));
+            } catch (Throwable e) {
+                release(ids).values().forEach(future -> future.completeExceptionally(e));
+            }
+        });
+    }
+
+    /**
+     * Take the futures of a finished batch out of the in-flight map before completing any of them,
+     * so a woken caller that looks up the same ids again starts a fresh load
+     */
+    private Map<Integer, CompletableFuture<V>> release(List<Integer> ids) {
+        Map<Integer, CompletableFuture<V>> futures = new HashMap<>();
+        for (Integer id : ids) {
+            CompletableFuture<V> future = inFlight.remove(id);
+            if (future != null) {
+                futures.put(id, future);
+            }
+        }
+        return futures;
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a batched lookup", e);
+        }
+    }
+}
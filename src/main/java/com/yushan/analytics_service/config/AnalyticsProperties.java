@@ -0,0 +1,50 @@
+package com.yushan.analytics_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Typed binding for the data lifecycle settings under {@code analytics}:
+ * aggregation, retention and reading_event partitioning.
+ * Defaults match application.yml so the service also starts without those keys.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "analytics")
+public class AnalyticsProperties {
+
+    private Aggregation aggregation = new Aggregation();
+    private Retention retention = new Retention();
+    private Partition partition = new Partition();
+
+    @Data
+    public static class Aggregation {
+        // Buckets rolled up per run and grain; a longer backlog is spread over several runs
+        private int batchSize = 1000;
+        // Seconds between aggregation runs
+        private int interval = 300;
+        // Seconds a bucket stays open after it ends, so late events still land in its rollup
+        private int allowedLatenessSeconds = 120;
+    }
+
+    @Data
+    public static class Retention {
+        // Raw reading events older than this are rolled up and then deleted
+        private int rawDataDays = 90;
+        // Daily rollups older than this are deleted
+        private int aggregatedDataDays = 365;
+        // Rows removed per DELETE statement; each chunk commits on its own
+        private int deleteChunkSize = 5000;
+        // Pause between chunks so vacuum and replicas keep up
+        private long chunkPauseMs = 50;
+        // Upper bound on chunks per run; the remainder is picked up by the next run
+        private int maxChunksPerRun = 2000;
+    }
+
+    @Data
+    public static class Partition {
+        // Monthly reading_event partitions kept ahead of the current month
+        private int premakeMonths = 3;
+    }
+}
@@ -0,0 +1,87 @@
+package com.yushan.analytics_service.config;
+
+import com.yushan.analytics_service.dto.ReadingEventDTO;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.Map;
+
+/**
+ * Kafka consumer configuration for reading events.
+ * Only active when spring.kafka.enabled is true.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.kafka.enabled", havingValue = "true")
+public class KafkaConsumerConfig {
+
+    @Value("${analytics.kafka.consumer.group-id:analytics-service}")
+    private String groupId;
+
+    @Value("${analytics.kafka.consumer.concurrency:3}")
+    private int concurrency;
+
+    @Value("${analytics.kafka.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value("${analytics.kafka.consumer.retry-attempts:3}")
+    private long retryAttempts;
+
+    @Value("${analytics.kafka.consumer.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    /**
+     * Consumer factory for reading events. Offsets are never auto-committed; the listener acknowledges
+     * each batch once it has been written. Payloads that cannot be deserialized reach the listener as null
+     * instead of blocking the partition.
+     *
+     * @param kafkaProperties Spring Boot Kafka properties (bootstrap servers, security, ...)
+     * @return Configured consumer factory
+     */
+    @Bean
+    public ConsumerFactory<String, ReadingEventDTO> readingEventConsumerFactory(KafkaProperties kafkaProperties) {
+        Map<String, Object> props = kafkaProperties.buildConsumerProperties(null);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        props.putIfAbsent(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+
+        JsonDeserializer<ReadingEventDTO> jsonDeserializer = new JsonDeserializer<>(ReadingEventDTO.class, false);
+        jsonDeserializer.addTrustedPackages("*");
+        return new DefaultKafkaConsumerFactory<>(props,
+                new ErrorHandlingDeserializer<>(new StringDeserializer()),
+                new ErrorHandlingDeserializer<>(jsonDeserializer));
+    }
+
+    /**
+     * Batch listener container factory with manual acknowledgment.
+     * A failing batch is retried with a fixed backoff before its records are logged and skipped.
+     *
+     * @param readingEventConsumerFactory Reading event consumer factory
+     * @return Configured listener container factory
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, ReadingEventDTO> readingEventListenerContainerFactory(
+            ConsumerFactory<String, ReadingEventDTO> readingEventConsumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<String, ReadingEventDTO> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(readingEventConsumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(retryBackoffMs, retryAttempts)));
+        return factory;
+    }
+}
@@ -171,8 +171,10 @@ public class AnalyticsController {
     @Operation(summary = "Get platform statistics", description = "Get comprehensive platform-wide statistics")
     @GetMapping("/platform/overview")
     @PreAuthorize("hasRole('ADMIN')")
-    public ApiResponse<PlatformStatisticsResponseDTO> getPlatformStatistics() {
-        PlatformStatisticsResponseDTO response = analyticsService.getPlatformStatistics();
+    public ApiResponse<PlatformStatisticsResponseDTO> getPlatformStatistics(
+            @Parameter(description = "Count active users from raw events instead of approximate sketches")
+            @RequestParam(value = "exact", defaultValue = "false") boolean exact) {
+        PlatformStatisticsResponseDTO response = analyticsService.getPlatformStatistics(exact);
         return ApiResponse.success("Platform statistics retrieved successfully", response);
     }
 
@@ -185,7 +187,11 @@ public class AnalyticsController {
     @PreAuthorize("hasRole('ADMIN')")
     public ApiResponse<DailyActiveUsersResponseDTO> getDailyActiveUsers(
             @Parameter(description = "Target date (YYYY-MM-DD)")
-            @RequestParam(value = "date", required = false) String date) {
+            @RequestParam(value = "date", required = false) String date,
+
+            @Parameter(description = "Count distinct users exactly instead of with HyperLogLog estimates; "
+                    + "either way the date must lie within the raw event retention")
+            @RequestParam(value = "exact", defaultValue = "false") boolean exact) {
         
         Date targetDate = new Date();
         if (date != null && !date.isEmpty()) {
@@ -196,7 +202,7 @@ public class AnalyticsController {
             }
         }
 
-        DailyActiveUsersResponseDTO response = analyticsService.getDailyActiveUsers(targetDate);
+        DailyActiveUsersResponseDTO response = analyticsService.getDailyActiveUsers(targetDate, exact);
         return ApiResponse.success("Daily active users retrieved successfully", response);
     }
 
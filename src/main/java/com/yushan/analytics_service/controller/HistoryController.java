@@ -1,23 +1,31 @@
 package com.yushan.analytics_service.controller;
 
 import com.yushan.analytics_service.dto.ApiResponse;
+import com.yushan.analytics_service.dto.CursorPageResponseDTO;
+import com.yushan.analytics_service.dto.HistoryImportResultDTO;
 import com.yushan.analytics_service.dto.HistoryResponseDTO;
 import com.yushan.analytics_service.dto.PageResponseDTO;
+import com.yushan.analytics_service.enums.HistoryImportFormat;
 import com.yushan.analytics_service.exception.UnauthorizedException;
 import com.yushan.analytics_service.exception.ValidationException;
 import com.yushan.analytics_service.security.CustomUserDetails;
+import com.yushan.analytics_service.service.HistoryImportService;
 import com.yushan.analytics_service.service.HistoryService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 import java.util.UUID;
 
 @RestController
@@ -27,6 +35,9 @@ public class HistoryController {
     @Autowired
     private HistoryService historyService;
 
+    @Autowired
+    private HistoryImportService historyImportService;
+
     /**
      * Add or update a viewing history record
      */
@@ -55,6 +66,23 @@ public class HistoryController {
         return ApiResponse.success("History retrieved successfully", historyPage);
     }
 
+    /**
+     * Get the user's viewing history with cursor pagination.
+     * Pass the returned nextCursor to get the following page; the total count is only included on request.
+     */
+    @GetMapping("/cursor")
+    @PreAuthorize("isAuthenticated()")
+    public ApiResponse<CursorPageResponseDTO<HistoryResponseDTO>> getUserHistoryByCursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "includeTotal", defaultValue = "false") boolean includeTotal,
+            Authentication authentication) {
+        UUID userId = getCurrentUserId(authentication);
+        CursorPageResponseDTO<HistoryResponseDTO> historyPage =
+                historyService.getUserHistoryByCursor(userId, cursor, size, includeTotal);
+        return ApiResponse.success("History retrieved successfully", historyPage);
+    }
+
     /**
      * Delete a single history record by its ID
      */
@@ -77,6 +105,20 @@ public class HistoryController {
         return ApiResponse.success("All history records have been cleared");
     }
 
+    /**
+     * Bulk import history rows from a CSV or NDJSON body (Admin only).
+     * The body is streamed into the database, so it can hold millions of rows.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<HistoryImportResultDTO> importHistory(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            HttpServletRequest request) throws IOException {
+        HistoryImportFormat format = HistoryImportFormat.fromContentType(contentType);
+        HistoryImportResultDTO result = historyImportService.importHistory(request.getInputStream(), format);
+        return ApiResponse.success("History imported successfully", result);
+    }
+
     protected UUID getCurrentUserId(Authentication authentication) {
         if (authentication == null || !authentication.isAuthenticated()) {
             throw new UnauthorizedException("Authentication required");
@@ -1,5 +1,6 @@
 package com.yushan.analytics_service.dao;
 
+import com.yushan.analytics_service.dto.ActivityWindowStatsDTO;
 import com.yushan.analytics_service.dto.AnalyticsTrendResponseDTO;
 import com.yushan.analytics_service.dto.DailyActiveUsersResponseDTO;
 import com.yushan.analytics_service.dto.ReadingActivityResponseDTO;
@@ -13,12 +14,15 @@ import java.util.UUID;
 /**
  * MyBatis Mapper for Analytics queries
  * Note: In microservice architecture, this primarily works with local history data
+ * Time-window queries read the reading_event log, which has one row per read; all-time rankings read the
+ * history snapshot, which outlives the event retention window
  * Additional metrics from other services are fetched via Feign clients in the service layer
+ * Date ranges are half-open: startDate is included, endDate is not
  */
 @Mapper
 public interface AnalyticsMapper {
     
-    // User activity trends (based on history table)
+    // User activity trends (based on reading events)
     List<AnalyticsTrendResponseDTO.TrendDataPoint> getUserActivityTrends(
             @Param("startDate") Date startDate,
             @Param("endDate") Date endDate,
@@ -30,21 +34,23 @@ public interface AnalyticsMapper {
             @Param("endDate") Date endDate,
             @Param("period") String period);
     
-    // Active user counts
-    Long getActiveUserCount(@Param("startDate") Date startDate, @Param("endDate") Date endDate);
-    
-    Long getDailyActiveUsers(@Param("date") Date date);
-    
-    Long getWeeklyActiveUsers(@Param("startDate") Date startDate, @Param("endDate") Date endDate);
+    // Activity of [startDate, endDate) and of [previousStartDate, startDate), in one scan
+    ActivityWindowStatsDTO getActivityWindowStats(
+            @Param("previousStartDate") Date previousStartDate,
+            @Param("startDate") Date startDate,
+            @Param("endDate") Date endDate);
     
-    Long getMonthlyActiveUsers(@Param("startDate") Date startDate, @Param("endDate") Date endDate);
+    // Distinct readers in [startTime, endTime)
+    Long getActiveUserCount(@Param("startTime") Date startTime, @Param("endTime") Date endTime);
     
     // Hourly active users breakdown
-    List<DailyActiveUsersResponseDTO.ActivityDataPoint> getHourlyActiveUsers(@Param("date") Date date);
-    
-    // Unique novel counts from history
-    Long getUniqueNovelsRead(@Param("startDate") Date startDate, @Param("endDate") Date endDate);
+    List<DailyActiveUsersResponseDTO.ActivityDataPoint> getHourlyActiveUsers(
+            @Param("startDate") Date startDate,
+            @Param("endDate") Date endDate);
     
+    // Distinct readers, for rebuilding active-user sketches
+    List<UUID> getActiveUserIds(@Param("startTime") Date startTime, @Param("endTime") Date endTime);
+
     // Total history records (reading sessions)
     Long getTotalReadingSessions(@Param("startDate") Date startDate, @Param("endDate") Date endDate);
     
@@ -4,6 +4,7 @@ import com.yushan.analytics_service.entity.History;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
@@ -15,6 +16,8 @@ public interface HistoryMapper {
 
     int insertSelective(History record);
 
+    int upsert(History record);
+
     History selectByPrimaryKey(Integer id);
 
     int updateByPrimaryKeySelective(History record);
@@ -28,7 +31,18 @@ public interface HistoryMapper {
                                                @Param("offset") int offset,
                                                @Param("size") int size);
 
+    List<History> selectByUserIdAfterCursor(@Param("userId") UUID userId,
+                                            @Param("cursorTime") Date cursorTime,
+                                            @Param("cursorId") Integer cursorId,
+                                            @Param("limit") int limit);
+
     long countByUserId(@Param("userId") UUID userId);
 
     int deleteByUserId(@Param("userId") UUID userId);
+
+    void createImportStagingTable();
+
+    int mergeImportStaging();
+
+    int batchUpsert(@Param("records") List<History> records);
 }
@@ -0,0 +1,44 @@
+package com.yushan.analytics_service.dao;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * MyBatis Mapper for partition maintenance DDL.
+ * Table names are substituted verbatim, so callers must only pass names they generated themselves.
+ */
+@Mapper
+public interface PartitionMapper {
+
+    List<String> selectPartitionNames(@Param("parentTable") String parentTable);
+
+    void createRangePartition(@Param("parentTable") String parentTable,
+                              @Param("partitionName") String partitionName,
+                              @Param("fromValue") String fromValue,
+                              @Param("toValue") String toValue);
+
+    boolean existsRowsInRange(@Param("tableName") String tableName,
+                              @Param("columnName") String columnName,
+                              @Param("fromValue") String fromValue,
+                              @Param("toValue") String toValue);
+
+    void createTableLike(@Param("tableName") String tableName, @Param("likeTable") String likeTable);
+
+    int moveRowsInRange(@Param("sourceTable") String sourceTable,
+                        @Param("targetTable") String targetTable,
+                        @Param("columnName") String columnName,
+                        @Param("fromValue") String fromValue,
+                        @Param("toValue") String toValue);
+
+    void attachRangePartition(@Param("parentTable") String parentTable,
+                              @Param("partitionName") String partitionName,
+                              @Param("fromValue") String fromValue,
+                              @Param("toValue") String toValue);
+
+    void detachPartition(@Param("parentTable") String parentTable,
+                         @Param("partitionName") String partitionName);
+
+    void dropTable(@Param("tableName") String tableName);
+}
@@ -0,0 +1,26 @@
+package com.yushan.analytics_service.dao;
+
+import com.yushan.analytics_service.entity.History;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * MyBatis Mapper for the append-only reading_event log.
+ * Reads are passed as History records with the read time in updateTime and the event id in uuid.
+ * Appends skip reads whose (event id, event time) is already stored, so writing a batch again is harmless.
+ */
+@Mapper
+public interface ReadingEventMapper {
+
+    int batchInsert(@Param("reads") List<History> reads);
+
+    // Append every row of the history_import staging table, not only the latest per (user, novel);
+    // the event id is derived from the row, so importing the same file twice adds nothing
+    int insertFromImportStaging();
+
+    // Days covered by the history_import staging table
+    List<Date> selectImportStagingDays();
+}
@@ -0,0 +1,25 @@
+package com.yushan.analytics_service.dao;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+
+/**
+ * MyBatis Mapper for expiring raw reading events and their rollups
+ */
+@Mapper
+public interface RetentionMapper {
+
+    // Delete at most limit events older than the cutoff, oldest first
+    int deleteReadingEventsBefore(@Param("cutoff") Date cutoff, @Param("limit") int limit);
+
+    int deleteHourlyRollupsBefore(@Param("cutoff") Date cutoff);
+
+    int deleteDailyRollupsBefore(@Param("cutoffDate") Date cutoffDate);
+
+    // Weeks and months are deleted once they start before the cutoff
+    int deleteWeeklyRollupsBefore(@Param("cutoffDate") Date cutoffDate);
+
+    int deleteMonthlyRollupsBefore(@Param("cutoffDate") Date cutoffDate);
+}
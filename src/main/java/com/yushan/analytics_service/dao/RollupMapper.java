@@ -0,0 +1,50 @@
+package com.yushan.analytics_service.dao;
+
+import com.yushan.analytics_service.dto.AnalyticsTrendResponseDTO;
+import com.yushan.analytics_service.dto.DailyActiveUsersResponseDTO;
+import com.yushan.analytics_service.dto.ReadingActivityResponseDTO;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * MyBatis Mapper for the hourly, daily, weekly and monthly activity rollups.
+ * All ranges are half-open: from inclusive, to exclusive.
+ */
+@Mapper
+public interface RollupMapper {
+
+    Date selectWatermark(@Param("rollupName") String rollupName);
+
+    void upsertWatermark(@Param("rollupName") String rollupName, @Param("rolledUpTo") Date rolledUpTo);
+
+    Date selectEarliestEventTime();
+
+    void markDirty(@Param("dirtyFrom") Date dirtyFrom);
+
+    // Removes and returns the dirty mark of a grain, or null when it has none
+    Date takeDirty(@Param("rollupName") String rollupName);
+
+    int rollupHourly(@Param("from") Date from, @Param("to") Date to);
+
+    int rollupDaily(@Param("from") Date from, @Param("to") Date to);
+
+    int rollupWeekly(@Param("from") Date from, @Param("to") Date to);
+
+    int rollupMonthly(@Param("from") Date from, @Param("to") Date to);
+
+    // period is daily, weekly or monthly
+    List<AnalyticsTrendResponseDTO.TrendDataPoint> getUserTrends(@Param("period") String period,
+                                                                 @Param("from") Date from, @Param("to") Date to);
+
+    List<ReadingActivityResponseDTO.ActivityDataPoint> getReadingTrends(@Param("period") String period,
+                                                                        @Param("from") Date from,
+                                                                        @Param("to") Date to);
+
+    Long sumDailyReadingEvents(@Param("from") Date from, @Param("to") Date to);
+
+    List<DailyActiveUsersResponseDTO.ActivityDataPoint> getHourlyActiveUsers(@Param("from") Date from,
+                                                                            @Param("to") Date to);
+}
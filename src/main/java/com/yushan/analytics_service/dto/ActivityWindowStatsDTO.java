@@ -0,0 +1,18 @@
+package com.yushan.analytics_service.dto;
+
+import lombok.Data;
+
+/**
+ * Reading activity of a window and of the equally long window right before it
+ */
+@Data
+public class ActivityWindowStatsDTO {
+
+    private Long activeUsers;
+    private Long uniqueNovelsRead;
+    private Long readingSessions;
+
+    private Long previousActiveUsers;
+    private Long previousUniqueNovelsRead;
+    private Long previousReadingSessions;
+}
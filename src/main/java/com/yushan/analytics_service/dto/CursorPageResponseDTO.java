@@ -0,0 +1,39 @@
+package com.yushan.analytics_service.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for a cursor (keyset) page. Pass nextCursor back to fetch the following page;
+ * totalElements is only filled in when the caller asks for it.
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(exclude = "content")
+public class CursorPageResponseDTO<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+    private Long totalElements;
+
+    // Override getter and setter for content to use defensive copy
+    public List<T> getContent() {
+        return content != null ? new java.util.ArrayList<>(content) : new java.util.ArrayList<>();
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content != null ? new java.util.ArrayList<>(content) : new java.util.ArrayList<>();
+    }
+
+    public CursorPageResponseDTO(List<T> content, int size, String nextCursor, Long totalElements) {
+        this.content = content != null ? new java.util.ArrayList<>(content) : new java.util.ArrayList<>();
+        this.size = size;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+        this.totalElements = totalElements;
+    }
+}
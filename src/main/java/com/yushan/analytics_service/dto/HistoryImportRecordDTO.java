@@ -0,0 +1,21 @@
+package com.yushan.analytics_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * DTO for one line of an NDJSON history import
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HistoryImportRecordDTO {
+    private UUID userId;
+    private Integer novelId;
+    private Integer chapterId;
+    private Date readAt;
+}
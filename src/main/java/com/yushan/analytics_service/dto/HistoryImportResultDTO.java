@@ -0,0 +1,22 @@
+package com.yushan.analytics_service.dto;
+
+import com.yushan.analytics_service.enums.HistoryImportFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO summarising a bulk history import.
+ * rowsMerged can be lower than rowsLoaded when the input repeats a (user, novel) pair
+ * or holds reads older than the stored history.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HistoryImportResultDTO {
+    private HistoryImportFormat format;
+    private long rowsLoaded;
+    private long rowsMerged;
+    private long durationMs;
+    private long rowsPerSecond;
+}
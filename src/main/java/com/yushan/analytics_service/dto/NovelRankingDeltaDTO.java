@@ -0,0 +1,23 @@
+package com.yushan.analytics_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * DTO for an incremental change to a novel's ranking scores.
+ * Deltas are added to the live ranking keys of the novel, its category and its author.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NovelRankingDeltaDTO {
+    private Integer novelId;
+    private Integer categoryId;
+    private UUID authorId;
+    private String authorUsername;
+    private long viewDelta;
+    private long voteDelta;
+}
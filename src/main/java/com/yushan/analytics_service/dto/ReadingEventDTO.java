@@ -0,0 +1,29 @@
+package com.yushan.analytics_service.dto;
+
+import com.yushan.analytics_service.enums.ReadingEventType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * DTO for a reading event published by other services on Kafka.
+ * categoryId, authorId and authorUsername are optional and only used to update category and author rankings.
+ * eventId is optional; without it the consumer derives one from the record's topic, partition and offset.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReadingEventDTO {
+    private ReadingEventType type;
+    private UUID userId;
+    private Integer novelId;
+    private Integer chapterId;
+    private Integer categoryId;
+    private UUID authorId;
+    private String authorUsername;
+    private Date occurredAt;
+    private UUID eventId;
+}
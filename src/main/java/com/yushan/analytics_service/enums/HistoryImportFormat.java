@@ -0,0 +1,34 @@
+package com.yushan.analytics_service.enums;
+
+import com.yushan.analytics_service.exception.ValidationException;
+import org.springframework.http.MediaType;
+
+public enum HistoryImportFormat {
+    CSV("text/csv"),
+    NDJSON("application/x-ndjson");
+
+    private final String mediaType;
+
+    HistoryImportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Resolve the format of a request body from its Content-Type header
+     */
+    public static HistoryImportFormat fromContentType(String contentType) {
+        if (contentType != null) {
+            MediaType requested = MediaType.parseMediaType(contentType);
+            for (HistoryImportFormat format : values()) {
+                if (MediaType.parseMediaType(format.mediaType).equalsTypeAndSubtype(requested)) {
+                    return format;
+                }
+            }
+        }
+        throw new ValidationException("Unsupported import content type: " + contentType);
+    }
+}
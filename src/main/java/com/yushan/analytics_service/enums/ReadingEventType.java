@@ -0,0 +1,17 @@
+package com.yushan.analytics_service.enums;
+
+public enum ReadingEventType {
+    CHAPTER_READ("A chapter was opened by a reader"),
+    VIEW("A novel view was counted"),
+    VOTE("A vote was cast for a novel");
+
+    private final String description;
+
+    ReadingEventType(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,69 @@
+package com.yushan.analytics_service.kafka;
+
+import com.yushan.analytics_service.dto.ReadingEventDTO;
+import com.yushan.analytics_service.service.ReadingEventService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Consumes chapter-read, view and vote events in batches and hands them to {@link ReadingEventService},
+ * so history and ranking ingestion no longer depend on synchronous HTTP calls.
+ * Eagerly created even under lazy initialization, otherwise the listener would never start.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "spring.kafka.enabled", havingValue = "true")
+public class ReadingEventConsumer {
+
+    @Autowired
+    private ReadingEventService readingEventService;
+
+    /**
+     * Process a batch of reading events and commit its offsets once it has been written.
+     * If processing throws, nothing is acknowledged and the container's error handler retries the batch.
+     * Delivery is at least once, so events without an id get one derived from their topic, partition and offset,
+     * and events without a time get the record timestamp; a redelivered record then yields the same read.
+     */
+    @KafkaListener(
+            id = "readingEventConsumer",
+            topics = "${analytics.kafka.reading-events-topic:reading-events}",
+            containerFactory = "readingEventListenerContainerFactory")
+    public void onReadingEvents(List<ConsumerRecord<String, ReadingEventDTO>> records, Acknowledgment acknowledgment) {
+        List<ReadingEventDTO> valid = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, ReadingEventDTO> record : records) {
+            // Records that failed to deserialize arrive as null
+            ReadingEventDTO event = record.value();
+            if (event == null) {
+                continue;
+            }
+            if (event.getEventId() == null) {
+                String coordinates = record.topic() + "/" + record.partition() + "/" + record.offset();
+                event.setEventId(UUID.nameUUIDFromBytes(coordinates.getBytes(StandardCharsets.UTF_8)));
+            }
+            if (event.getOccurredAt() == null) {
+                event.setOccurredAt(new Date(record.timestamp()));
+            }
+            valid.add(event);
+        }
+        if (valid.size() < records.size()) {
+            log.warn("Dropping {} reading events that could not be deserialized", records.size() - valid.size());
+        }
+        if (!valid.isEmpty()) {
+            readingEventService.process(valid);
+        }
+        acknowledgment.acknowledge();
+    }
+}
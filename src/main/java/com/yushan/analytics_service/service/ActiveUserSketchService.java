@@ -0,0 +1,140 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.dao.AnalyticsMapper;
+import com.yushan.analytics_service.entity.History;
+import com.yushan.analytics_service.util.RedisUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Approximate distinct-user counts backed by one Redis HyperLogLog per day.
+ * Readers are added on the ingest path, and a range of days is counted with a single multi-key PFCOUNT,
+ * which merges the sketches server-side, so WAU and MAU cost O(days) instead of O(rows).
+ * Estimates carry HyperLogLog's standard error of about 0.81%.
+ * A sketch that exists is not necessarily complete: live reads recreate a lost one with only the readers seen
+ * since. So a rebuild from reading_event stores a per-day complete marker next to the sketch, and a day is rebuilt
+ * when it is counted without both. A failed update or an invalidation drops the marker, and a rebuild adds every
+ * reader of the day to whatever the sketch already holds. A day without readers is stored as an empty sketch.
+ */
+@Slf4j
+@Service
+public class ActiveUserSketchService {
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private AnalyticsMapper analyticsMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.active-users.sketch-ttl-days:40}")
+    private int sketchTtlDays = 40;
+
+    private static final String SKETCH_PREFIX = "analytics:active-users:";
+    private static final String COMPLETE_PREFIX = "analytics:active-users-complete:";
+    private static final int REBUILD_BATCH_SIZE = 10000;
+
+    /**
+     * Add the readers of these reads to their days' sketches. Failures are logged, not thrown:
+     * the reads are already stored, and the days lose their complete marker so they are rebuilt when next counted.
+     */
+    public void recordReads(Collection<History> reads) {
+        Map<String, Set<String>> usersByKey = new HashMap<>();
+        Set<LocalDate> days = new HashSet<>();
+        for (History read : reads) {
+            if (read.getUserId() == null || read.getUpdateTime() == null) {
+                continue;
+            }
+            LocalDate day = new Timestamp(read.getUpdateTime().getTime()).toLocalDateTime().toLocalDate();
+            days.add(day);
+            usersByKey.computeIfAbsent(key(day), key -> new HashSet<>()).add(read.getUserId().toString());
+        }
+        try {
+            redisUtil.pfAddPipelined(usersByKey, Duration.ofDays(sketchTtlDays));
+        } catch (Exception e) {
+            log.warn("Failed to update active-user sketches for {} days: {}", usersByKey.size(), e.getMessage());
+            try {
+                redisUtil.delete(days.stream().map(ActiveUserSketchService::completeKey).toList());
+            } catch (Exception markerFailure) {
+                log.error("Failed to mark {} active-user sketches incomplete: {}", days.size(),
+                        markerFailure.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Mark the sketches of these days incomplete so they are rebuilt from reading_event, e.g. after a bulk import.
+     * The sketches are kept, so the days are not undercounted until the rebuild.
+     */
+    public void invalidateDays(Collection<? extends Date> days) {
+        List<String> keys = days.stream()
+                .map(day -> completeKey(new Timestamp(day.getTime()).toLocalDateTime().toLocalDate()))
+                .toList();
+        redisUtil.delete(keys);
+    }
+
+    /**
+     * Approximate number of distinct readers from the first to the last day, both inclusive
+     */
+    public long countDistinctUsers(LocalDate firstDay, LocalDate lastDay) {
+        List<String> keys = new ArrayList<>();
+        List<String> sketchAndCompleteKeys = new ArrayList<>();
+        for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            keys.add(key(day));
+            sketchAndCompleteKeys.add(key(day));
+            sketchAndCompleteKeys.add(completeKey(day));
+        }
+
+        // The sketch can outlive its marker and the other way round (expiry, eviction), so both must be there
+        List<Boolean> exists = redisUtil.existsEach(sketchAndCompleteKeys);
+        for (int i = 0; i < keys.size(); i++) {
+            if (2 * i + 1 >= exists.size() || !exists.get(2 * i) || !exists.get(2 * i + 1)) {
+                rebuild(firstDay.plusDays(i));
+            }
+        }
+        return redisUtil.pfCountUnion(keys);
+    }
+
+    private void rebuild(LocalDate day) {
+        List<UUID> userIds = analyticsMapper.getActiveUserIds(
+                Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+        if (userIds.isEmpty()) {
+            redisUtil.pfCreate(key(day), Duration.ofDays(sketchTtlDays));
+        }
+        for (int start = 0; start < userIds.size(); start += REBUILD_BATCH_SIZE) {
+            List<String> batch = userIds.subList(start, Math.min(start + REBUILD_BATCH_SIZE, userIds.size()))
+                    .stream().map(UUID::toString).toList();
+            redisUtil.pfAddPipelined(Map.of(key(day), batch), Duration.ofDays(sketchTtlDays));
+        }
+        // Only once every reader is in; a rebuild that fails halfway leaves the day to be rebuilt again
+        redisUtil.set(completeKey(day), Boolean.TRUE, Duration.ofDays(sketchTtlDays));
+        meterRegistry.counter("analytics.active-users.sketch.rebuilt").increment();
+        log.info("Rebuilt active-user sketch for {} from {} readers", day, userIds.size());
+    }
+
+    private static String key(LocalDate day) {
+        return SKETCH_PREFIX + day;
+    }
+
+    private static String completeKey(LocalDate day) {
+        return COMPLETE_PREFIX + day;
+    }
+}
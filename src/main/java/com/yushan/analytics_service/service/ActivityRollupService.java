@@ -0,0 +1,332 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.config.AnalyticsProperties;
+import com.yushan.analytics_service.dao.AnalyticsMapper;
+import com.yushan.analytics_service.dao.RollupMapper;
+import com.yushan.analytics_service.dto.AnalyticsTrendResponseDTO;
+import com.yushan.analytics_service.dto.DailyActiveUsersResponseDTO;
+import com.yushan.analytics_service.dto.ReadingActivityResponseDTO;
+import com.yushan.analytics_service.exception.ValidationException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains the hourly, daily, weekly and monthly activity rollups and answers trend queries from them.
+ * Distinct counts do not add up across buckets, so every grain is rolled up from reading_event on its own.
+ * Each grain has a watermark: buckets before it are final and read from the rollup table, the open
+ * remainder is scanned from reading_event. Every run only rolls up buckets that closed since the last one,
+ * at most {@code analytics.aggregation.batch-size} per grain.
+ * Reads stored after their bucket may have been rolled up (consumer lag, imports of past days) mark the rollups
+ * dirty from their time on; the next run recomputes from the mark, so the watermark can move back. Days whose
+ * raw events are past {@code analytics.retention.raw-data-days} are never recomputed.
+ */
+@Slf4j
+@Service
+public class ActivityRollupService {
+
+    @Autowired
+    private RollupMapper rollupMapper;
+
+    @Autowired
+    private AnalyticsMapper analyticsMapper;
+
+    @Autowired
+    private AnalyticsProperties analyticsProperties;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Scheduled(fixedDelayString = "${analytics.aggregation.interval:300}",
+            initialDelayString = "${analytics.aggregation.interval:300}", timeUnit = TimeUnit.SECONDS)
+    public void aggregate() {
+        try {
+            aggregate(LocalDateTime.now());
+        } catch (Exception e) {
+            log.error("Activity rollup failed: {}", e.getMessage(), e);
+        }
+    }
+
+    void aggregate(LocalDateTime now) {
+        AnalyticsProperties.Aggregation aggregation = analyticsProperties.getAggregation();
+        LocalDateTime closedBefore = now.minusSeconds(aggregation.getAllowedLatenessSeconds());
+        for (Grain grain : Grain.values()) {
+            rollUp(grain, closedBefore, aggregation.getBatchSize());
+        }
+    }
+
+    /**
+     * Distinct readers per day, week or month for every period from startDate to endDate
+     */
+    public List<AnalyticsTrendResponseDTO.TrendDataPoint> getUserTrends(String period, Date startDate, Date endDate) {
+        Grain grain = Grain.forPeriod(period);
+        Split split = split(grain, startDate, endDate);
+        List<AnalyticsTrendResponseDTO.TrendDataPoint> dataPoints = new ArrayList<>();
+        if (split.rollupFrom() != null) {
+            dataPoints.addAll(rollupMapper.getUserTrends(grain.rollupName(), split.rollupFrom(), split.rollupTo()));
+        }
+        if (split.rawFrom() != null) {
+            dataPoints.addAll(analyticsMapper.getUserActivityTrends(split.rawFrom(), split.rawTo(), grain.rollupName()));
+        }
+        return dataPoints;
+    }
+
+    /**
+     * Reading activity per day, week or month for every period from startDate to endDate
+     */
+    public List<ReadingActivityResponseDTO.ActivityDataPoint> getReadingTrends(String period, Date startDate,
+                                                                              Date endDate) {
+        Grain grain = Grain.forPeriod(period);
+        Split split = split(grain, startDate, endDate);
+        List<ReadingActivityResponseDTO.ActivityDataPoint> dataPoints = new ArrayList<>();
+        if (split.rollupFrom() != null) {
+            dataPoints.addAll(rollupMapper.getReadingTrends(grain.rollupName(), split.rollupFrom(), split.rollupTo()));
+        }
+        if (split.rawFrom() != null) {
+            dataPoints.addAll(analyticsMapper.getReadingActivityTrends(split.rawFrom(), split.rawTo(),
+                    grain.rollupName()));
+        }
+        return dataPoints;
+    }
+
+    /**
+     * Active users and reads per hour of the given day
+     */
+    public List<DailyActiveUsersResponseDTO.ActivityDataPoint> getHourlyActiveUsers(Date date) {
+        LocalDateTime dayStart = toLocalDateTime(date).truncatedTo(ChronoUnit.DAYS);
+        Split split = split(Grain.HOURLY, Timestamp.valueOf(dayStart), Timestamp.valueOf(dayStart.plusDays(1)));
+        List<DailyActiveUsersResponseDTO.ActivityDataPoint> dataPoints = new ArrayList<>();
+        if (split.rollupFrom() != null) {
+            dataPoints.addAll(rollupMapper.getHourlyActiveUsers(split.rollupFrom(), split.rollupTo()));
+        }
+        if (split.rawFrom() != null) {
+            dataPoints.addAll(analyticsMapper.getHourlyActiveUsers(split.rawFrom(), split.rawTo()));
+        }
+        return dataPoints;
+    }
+
+    /**
+     * Number of reads on the days from startDate to endDate, counted per whole day
+     */
+    public long getReadingEventCount(Date startDate, Date endDate) {
+        Split split = split(Grain.DAILY, startDate, endDate);
+        long count = 0;
+        if (split.rollupFrom() != null) {
+            Long rolledUp = rollupMapper.sumDailyReadingEvents(split.rollupFrom(), split.rollupTo());
+            count += rolledUp != null ? rolledUp : 0L;
+        }
+        if (split.rawFrom() != null) {
+            Long raw = analyticsMapper.getTotalReadingSessions(split.rawFrom(), split.rawTo());
+            count += raw != null ? raw : 0L;
+        }
+        return count;
+    }
+
+    /**
+     * The first day whose reading events are all kept; retention never deletes raw events from this day on
+     */
+    public LocalDate oldestRawDay() {
+        return LocalDate.now().minusDays(analyticsProperties.getRetention().getRawDataDays());
+    }
+
+    /**
+     * The day before which every grain has been rolled up, or null while some grain has never run.
+     * Raw events before it can be deleted without any trend losing data.
+     */
+    public LocalDate rolledUpBefore() {
+        LocalDate rolledUpBefore = null;
+        for (Grain grain : Grain.values()) {
+            LocalDateTime watermark = watermark(grain);
+            if (watermark == null) {
+                return null;
+            }
+            LocalDate day = watermark.toLocalDate();
+            if (rolledUpBefore == null || day.isBefore(rolledUpBefore)) {
+                rolledUpBefore = day;
+            }
+        }
+        return rolledUpBefore;
+    }
+
+    /**
+     * Mark the rollups for recomputation from the earliest of a batch of reads, when that read may already lie in
+     * a rolled-up bucket. Call it in the transaction that stores the reads, so the mark commits with them.
+     * Reads within half the allowed lateness are left alone, which keeps the live stream from writing marks
+     * while leaving a margin for the storing transaction to commit.
+     */
+    public void markLateReads(Date earliestReadTime) {
+        if (earliestReadTime == null) {
+            return;
+        }
+        long lateAfterMs = analyticsProperties.getAggregation().getAllowedLatenessSeconds() * 1000L / 2;
+        if (earliestReadTime.getTime() < System.currentTimeMillis() - lateAfterMs) {
+            rollupMapper.markDirty(earliestReadTime);
+        }
+    }
+
+    private void rollUp(Grain grain, LocalDateTime closedBefore, int batchSize) {
+        LocalDateTime openBucket = grain.bucketStart(closedBefore);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        // Taking the dirty mark, the rollup and the watermark move together, so a failed run is simply repeated
+        RolledUp rolledUp = transactionTemplate.execute(status -> {
+            LocalDateTime from = rollupStart(grain, closedBefore, openBucket);
+            if (!from.isBefore(openBucket)) {
+                return null;
+            }
+            LocalDateTime to = grain.plus(from, Math.max(batchSize, 1));
+            if (to.isAfter(openBucket)) {
+                to = openBucket;
+            }
+            Timestamp fromTime = Timestamp.valueOf(from);
+            Timestamp toTime = Timestamp.valueOf(to);
+            int rows = switch (grain) {
+                case HOURLY -> rollupMapper.rollupHourly(fromTime, toTime);
+                case DAILY -> rollupMapper.rollupDaily(fromTime, toTime);
+                case WEEKLY -> rollupMapper.rollupWeekly(fromTime, toTime);
+                case MONTHLY -> rollupMapper.rollupMonthly(fromTime, toTime);
+            };
+            rollupMapper.upsertWatermark(grain.rollupName(), toTime);
+            return new RolledUp(from, to, rows);
+        });
+        if (rolledUp == null) {
+            return;
+        }
+        sample.stop(meterRegistry.timer("analytics.rollup.duration", "grain", grain.rollupName()));
+        meterRegistry.counter("analytics.rollup.buckets", "grain", grain.rollupName()).increment(rolledUp.buckets());
+        log.debug("Rolled up {} {} buckets from {} to {}", rolledUp.buckets(), grain.rollupName(),
+                rolledUp.from(), rolledUp.to());
+    }
+
+    /**
+     * The watermark, or the first bucket with events before any rollup ran, moved back to a dirty mark
+     * that lies before it
+     */
+    private LocalDateTime rollupStart(Grain grain, LocalDateTime closedBefore, LocalDateTime openBucket) {
+        LocalDateTime from = watermark(grain);
+        if (from == null) {
+            Date earliest = rollupMapper.selectEarliestEventTime();
+            from = earliest != null ? grain.bucketStart(toLocalDateTime(earliest)) : openBucket;
+        }
+        Date dirty = rollupMapper.takeDirty(grain.rollupName());
+        if (dirty == null) {
+            return from;
+        }
+        // Older raw events are (being) purged, so recomputing their buckets would undercount them;
+        // only buckets that start on or after the oldest kept day are recomputed
+        LocalDateTime oldestKept = closedBefore.toLocalDate()
+                .minusDays(analyticsProperties.getRetention().getRawDataDays()).atStartOfDay();
+        LocalDateTime firstWholeBucket = grain.bucketStart(oldestKept);
+        if (firstWholeBucket.isBefore(oldestKept)) {
+            firstWholeBucket = grain.plus(firstWholeBucket, 1);
+        }
+        LocalDateTime dirtyBucket = grain.bucketStart(toLocalDateTime(dirty));
+        if (dirtyBucket.isBefore(firstWholeBucket)) {
+            dirtyBucket = firstWholeBucket;
+        }
+        if (dirtyBucket.isBefore(from)) {
+            log.info("Recomputing {} rollups from {} for late reads", grain.rollupName(), dirtyBucket);
+            meterRegistry.counter("analytics.rollup.rewinds", "grain", grain.rollupName()).increment();
+            return dirtyBucket;
+        }
+        return from;
+    }
+
+    /**
+     * Widen [startDate, endDate) to whole buckets and divide it into the rolled-up buckets before the watermark
+     * and the raw remainder from it on. An endDate on a bucket boundary ends the range there.
+     */
+    private Split split(Grain grain, Date startDate, Date endDate) {
+        LocalDateTime firstBucket = grain.bucketStart(toLocalDateTime(startDate));
+        LocalDateTime end = toLocalDateTime(endDate);
+        LocalDateTime lastBucket = grain.bucketStart(end);
+        LocalDateTime afterLastBucket = lastBucket.equals(end) ? end : grain.plus(lastBucket, 1);
+        Timestamp rawTo = Timestamp.valueOf(afterLastBucket);
+        LocalDateTime watermark = watermark(grain);
+        if (watermark == null || !firstBucket.isBefore(watermark)) {
+            return new Split(null, null, Timestamp.valueOf(firstBucket), rawTo);
+        }
+        LocalDateTime rollupTo = afterLastBucket.isBefore(watermark) ? afterLastBucket : watermark;
+        Date rawFrom = afterLastBucket.isAfter(watermark) ? Timestamp.valueOf(watermark) : null;
+        return new Split(Timestamp.valueOf(firstBucket), Timestamp.valueOf(rollupTo), rawFrom, rawTo);
+    }
+
+    private LocalDateTime watermark(Grain grain) {
+        Date rolledUpTo = rollupMapper.selectWatermark(grain.rollupName());
+        return rolledUpTo != null ? toLocalDateTime(rolledUpTo) : null;
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return new Timestamp(date.getTime()).toLocalDateTime();
+    }
+
+    /**
+     * Rollup granularity. The names are the trend periods and the rollup_watermark rows;
+     * weeks start on Monday, as with DATE_TRUNC('week').
+     */
+    enum Grain {
+        HOURLY("hourly"),
+        DAILY("daily"),
+        WEEKLY("weekly"),
+        MONTHLY("monthly");
+
+        private final String rollupName;
+
+        Grain(String rollupName) {
+            this.rollupName = rollupName;
+        }
+
+        String rollupName() {
+            return rollupName;
+        }
+
+        LocalDateTime bucketStart(LocalDateTime time) {
+            return switch (this) {
+                case HOURLY -> time.truncatedTo(ChronoUnit.HOURS);
+                case DAILY -> time.truncatedTo(ChronoUnit.DAYS);
+                case WEEKLY -> time.toLocalDate().with(DayOfWeek.MONDAY).atStartOfDay();
+                case MONTHLY -> time.toLocalDate().withDayOfMonth(1).atStartOfDay();
+            };
+        }
+
+        LocalDateTime plus(LocalDateTime bucketStart, long buckets) {
+            return switch (this) {
+                case HOURLY -> bucketStart.plusHours(buckets);
+                case DAILY -> bucketStart.plusDays(buckets);
+                case WEEKLY -> bucketStart.plusWeeks(buckets);
+                case MONTHLY -> bucketStart.plusMonths(buckets);
+            };
+        }
+
+        static Grain forPeriod(String period) {
+            for (Grain grain : List.of(DAILY, WEEKLY, MONTHLY)) {
+                if (grain.rollupName.equals(period)) {
+                    return grain;
+                }
+            }
+            throw new ValidationException("Period must be daily, weekly, or monthly");
+        }
+    }
+
+    private record RolledUp(LocalDateTime from, LocalDateTime to, int buckets) {
+    }
+
+    private record Split(Date rollupFrom, Date rollupTo, Date rawFrom, Date rawTo) {
+    }
+}
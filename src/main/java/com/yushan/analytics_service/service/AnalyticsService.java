@@ -4,6 +4,7 @@ import com.yushan.analytics_service.client.ContentServiceClient;
 import com.yushan.analytics_service.client.EngagementServiceClient;
 import com.yushan.analytics_service.client.UserServiceClient;
 import com.yushan.analytics_service.dao.AnalyticsMapper;
+import com.yushan.analytics_service.dto.ActivityWindowStatsDTO;
 import com.yushan.analytics_service.dto.AnalyticsRequestDTO;
 import com.yushan.analytics_service.dto.AnalyticsSummaryResponseDTO;
 import com.yushan.analytics_service.dto.AnalyticsTrendResponseDTO;
@@ -13,14 +14,27 @@ import com.yushan.analytics_service.dto.NovelDetailResponseDTO;
 import com.yushan.analytics_service.dto.PlatformStatisticsResponseDTO;
 import com.yushan.analytics_service.dto.ReadingActivityResponseDTO;
 import com.yushan.analytics_service.dto.TopContentResponseDTO;
+import com.yushan.analytics_service.exception.ValidationException;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
@@ -36,9 +50,26 @@ public class AnalyticsService {
     @Autowired
     private ContentServiceClient contentServiceClient;
 
+    @Autowired
+    private ContentMetadataCache contentMetadataCache;
+
     @Autowired
     private EngagementServiceClient engagementServiceClient;
 
+    @Autowired
+    private ActivityRollupService activityRollupService;
+
+    @Autowired
+    private ActiveUserSketchService activeUserSketchService;
+
+    private static final int WEEK_DAYS = 7;
+    private static final int MONTH_DAYS = 30;
+
+    @Value("${analytics.summary.engagement-timeout-ms:2000}")
+    private long engagementTimeoutMs = 2000;
+
+    private final ExecutorService engagementExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
     /**
      * Get user activity trends (based on reading history)
      */
@@ -59,8 +90,9 @@ public class AnalyticsService {
             }
         }
 
-        List<AnalyticsTrendResponseDTO.TrendDataPoint> dataPoints = 
-            analyticsMapper.getUserActivityTrends(startDate, endDate, period);
+        // Closed periods come from the rollups, only the open remainder is scanned from reading events
+        List<AnalyticsTrendResponseDTO.TrendDataPoint> dataPoints =
+            activityRollupService.getUserTrends(period, startDate, endDate);
 
         // Calculate growth rates
         calculateGrowthRates(dataPoints);
@@ -107,8 +139,8 @@ public class AnalyticsService {
             }
         }
 
-        List<ReadingActivityResponseDTO.ActivityDataPoint> dataPoints = 
-            analyticsMapper.getReadingActivityTrends(startDate, endDate, period);
+        List<ReadingActivityResponseDTO.ActivityDataPoint> dataPoints =
+            activityRollupService.getReadingTrends(period, startDate, endDate);
 
         ReadingActivityResponseDTO response = new ReadingActivityResponseDTO();
         response.setPeriod(period);
@@ -164,48 +196,37 @@ public class AnalyticsService {
         response.setEndDate(endDate);
         response.setPeriod(request.getPeriod());
 
-        // Get metrics from local analytics database
-        Long activeUsers = analyticsMapper.getActiveUserCount(startDate, endDate);
-        Long uniqueNovels = analyticsMapper.getUniqueNovelsRead(startDate, endDate);
-        Long readingSessions = analyticsMapper.getTotalReadingSessions(startDate, endDate);
-
-        response.setActiveUsers(activeUsers);
-        response.setUniqueNovelsRead(uniqueNovels);
-        response.setTotalReadingSessions(readingSessions);
+        // Engagement statistics come from another service; fetch them while the local query runs
+        CompletableFuture<ApiResponse<EngagementServiceClient.ModerationStatistics>> engagementFuture =
+            fetchEngagementStatisticsAsync();
 
-        // Calculate growth rates
+        // The previous window has the same length and ends where the current one starts
         Calendar cal = Calendar.getInstance();
         cal.setTime(startDate);
         long daysDiff = (endDate.getTime() - startDate.getTime()) / (1000 * 60 * 60 * 24);
         cal.add(Calendar.DAY_OF_MONTH, -(int)daysDiff);
         Date previousStartDate = cal.getTime();
-        Date previousEndDate = new Date(startDate.getTime() - 1);
-        
-        // User growth rate
-        Long previousActiveUsers = analyticsMapper.getActiveUserCount(previousStartDate, previousEndDate);
-        response.setUserGrowthRate(calculateGrowthRate(previousActiveUsers, activeUsers));
-        
-        // Novel growth rate
-        Long previousNovels = analyticsMapper.getUniqueNovelsRead(previousStartDate, previousEndDate);
-        response.setNovelGrowthRate(calculateGrowthRate(previousNovels, uniqueNovels));
-        
-        // Session growth rate
-        Long previousSessions = analyticsMapper.getTotalReadingSessions(previousStartDate, previousEndDate);
-        response.setSessionGrowthRate(calculateGrowthRate(previousSessions, readingSessions));
 
-        // Get engagement statistics from engagement service
-        try {
-            ApiResponse<EngagementServiceClient.ModerationStatistics> stats = 
-                    engagementServiceClient.getModerationStatistics();
-            if (stats != null && stats.getCode() != null && stats.getCode().equals(200) && stats.getData() != null) {
-                response.setTotalComments(stats.getData().totalComments);
-                // Reviews count would need a separate endpoint
-                response.setTotalReviews(0L);
-            }
-        } catch (Exception e) {
-            log.warn("Could not fetch engagement statistics: {}", e.getMessage());
+        // Both windows in one scan of the local reading events
+        ActivityWindowStatsDTO stats = analyticsMapper.getActivityWindowStats(previousStartDate, startDate, endDate);
+        response.setActiveUsers(stats.getActiveUsers());
+        response.setUniqueNovelsRead(stats.getUniqueNovelsRead());
+        response.setTotalReadingSessions(stats.getReadingSessions());
+
+        // Calculate growth rates
+        response.setUserGrowthRate(calculateGrowthRate(stats.getPreviousActiveUsers(), stats.getActiveUsers()));
+        response.setNovelGrowthRate(calculateGrowthRate(stats.getPreviousUniqueNovelsRead(), stats.getUniqueNovelsRead()));
+        response.setSessionGrowthRate(calculateGrowthRate(stats.getPreviousReadingSessions(), stats.getReadingSessions()));
+
+        ApiResponse<EngagementServiceClient.ModerationStatistics> engagementStats = engagementFuture.join();
+        if (engagementStats == null) {
             response.setTotalComments(0L);
             response.setTotalReviews(0L);
+        } else if (engagementStats.getCode() != null && engagementStats.getCode().equals(200)
+                && engagementStats.getData() != null) {
+            response.setTotalComments(engagementStats.getData().totalComments);
+            // Reviews count would need a separate endpoint
+            response.setTotalReviews(0L);
         }
 
         response.setAverageRating(0.0); // Would need to aggregate from all novels
@@ -213,33 +234,55 @@ public class AnalyticsService {
         return response;
     }
 
+    /**
+     * Fetch moderation statistics on a virtual thread. The caller's request attributes are carried over so
+     * Feign still forwards the Authorization header; failures and timeouts complete with null.
+     */
+    private CompletableFuture<ApiResponse<EngagementServiceClient.ModerationStatistics>> fetchEngagementStatisticsAsync() {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        return CompletableFuture.supplyAsync(() -> {
+                    RequestContextHolder.setRequestAttributes(requestAttributes);
+                    try {
+                        return engagementServiceClient.getModerationStatistics();
+                    } finally {
+                        RequestContextHolder.resetRequestAttributes();
+                    }
+                }, engagementExecutor)
+                .exceptionally(e -> {
+                    log.warn("Could not fetch engagement statistics: {}", e.getMessage());
+                    return null;
+                })
+                .completeOnTimeout(null, engagementTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        engagementExecutor.shutdownNow();
+    }
+
     /**
      * Get platform-wide statistics overview
+     *
+     * Reading sessions always come from the daily rollups plus the open remainder: their counts are exact,
+     * and the raw events of older days are gone after {@code analytics.retention.raw-data-days}.
+     *
+     * @param exact count active users from raw events instead of sketches
      */
-    public PlatformStatisticsResponseDTO getPlatformStatistics() {
+    public PlatformStatisticsResponseDTO getPlatformStatistics(boolean exact) {
         PlatformStatisticsResponseDTO response = new PlatformStatisticsResponseDTO();
         response.setTimestamp(new Date());
 
-        // Calculate date ranges
-        Calendar cal = Calendar.getInstance();
-        Date today = cal.getTime();
-        
-        cal.add(Calendar.DATE, -7);
-        Date weekStart = cal.getTime();
-        
-        cal = Calendar.getInstance();
-        cal.add(Calendar.MONTH, -1);
-        Date monthStart = cal.getTime();
-        
+        Date today = new Date();
         Calendar yearCal = Calendar.getInstance();
         yearCal.add(Calendar.YEAR, -100); // Very old date for "all time"
         Date veryOldDate = yearCal.getTime();
 
         // Get activity statistics from local database
-        response.setDailyActiveUsers(analyticsMapper.getDailyActiveUsers(today));
-        response.setWeeklyActiveUsers(analyticsMapper.getWeeklyActiveUsers(weekStart, today));
-        response.setMonthlyActiveUsers(analyticsMapper.getMonthlyActiveUsers(monthStart, today));
-        response.setTotalReadingSessions(analyticsMapper.getTotalReadingSessions(veryOldDate, today));
+        ActiveUsers activeUsers = countActiveUsers(today, exact);
+        response.setDailyActiveUsers(activeUsers.daily());
+        response.setWeeklyActiveUsers(activeUsers.weekly());
+        response.setMonthlyActiveUsers(activeUsers.monthly());
+        response.setTotalReadingSessions(activityRollupService.getReadingEventCount(veryOldDate, today));
 
         // Get total novels from content service
         try {
@@ -275,32 +318,24 @@ public class AnalyticsService {
 
     /**
      * Get daily active users with hourly breakdown
+     *
+     * @param exact count distinct users from raw events instead of the HyperLogLog sketches
      */
-    public DailyActiveUsersResponseDTO getDailyActiveUsers(Date date) {
+    public DailyActiveUsersResponseDTO getDailyActiveUsers(Date date, boolean exact) {
         if (date == null) {
             date = new Date();
         }
 
         DailyActiveUsersResponseDTO response = new DailyActiveUsersResponseDTO();
         response.setDate(date);
-        response.setDau(analyticsMapper.getDailyActiveUsers(date));
-
-        // Calculate weekly and monthly active users
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-        cal.add(Calendar.DATE, -7);
-        Date weekStart = cal.getTime();
-        response.setWau(analyticsMapper.getWeeklyActiveUsers(weekStart, date));
-
-        cal = Calendar.getInstance();
-        cal.setTime(date);
-        cal.add(Calendar.MONTH, -1);
-        Date monthStart = cal.getTime();
-        response.setMau(analyticsMapper.getMonthlyActiveUsers(monthStart, date));
+        ActiveUsers activeUsers = countActiveUsers(date, exact);
+        response.setDau(activeUsers.daily());
+        response.setWau(activeUsers.weekly());
+        response.setMau(activeUsers.monthly());
 
         // Get hourly breakdown
         List<DailyActiveUsersResponseDTO.ActivityDataPoint> hourlyData = 
-            analyticsMapper.getHourlyActiveUsers(date);
+            activityRollupService.getHourlyActiveUsers(date);
         response.setHourlyBreakdown(hourlyData);
 
         return response;
@@ -324,13 +359,12 @@ public class AnalyticsService {
         List<TopContentResponseDTO.TopNovel> topNovels = Collections.emptyList();
         if (!topNovelIds.isEmpty()) {
             try {
-                ApiResponse<List<NovelDetailResponseDTO>> novelsResponse = 
-                    contentServiceClient.getNovelsBatch(topNovelIds);
-                if (novelsResponse != null && novelsResponse.getCode() != null && novelsResponse.getCode().equals(200) && novelsResponse.getData() != null) {
-                    topNovels = novelsResponse.getData().stream()
-                        .map(this::convertToTopNovel)
-                        .toList();
-                }
+                Map<Integer, NovelDetailResponseDTO> novels = contentMetadataCache.getNovels(topNovelIds);
+                topNovels = topNovelIds.stream()
+                    .map(novels::get)
+                    .filter(Objects::nonNull)
+                    .map(this::convertToTopNovel)
+                    .toList();
             } catch (Exception e) {
                 log.error("Error fetching top novels from content service: {}", e.getMessage());
             }
@@ -347,6 +381,40 @@ public class AnalyticsService {
         return response;
     }
 
+    /**
+     * Active users on the day of the given date, and in the 7 and 30 days ending with it.
+     * Both paths count whole days, so a window of n days ending on day d is [start(d - n + 1), start(d + 1)).
+     * Sketch counts cost one Redis call per window; exact counts scan reading events.
+     * Both need the raw events of every day in the 30 day window, so older dates are rejected
+     * instead of being undercounted.
+     */
+    private ActiveUsers countActiveUsers(Date date, boolean exact) {
+        LocalDate day = toLocalDate(date);
+        LocalDate oldestRawDay = activityRollupService.oldestRawDay();
+        if (day.minusDays(MONTH_DAYS - 1).isBefore(oldestRawDay)) {
+            throw new ValidationException("Active users can only be counted for dates from "
+                + oldestRawDay.plusDays(MONTH_DAYS - 1) + " on; older reading events are no longer kept");
+        }
+        return new ActiveUsers(countActiveUsers(day, day, exact),
+            countActiveUsers(day.minusDays(WEEK_DAYS - 1), day, exact),
+            countActiveUsers(day.minusDays(MONTH_DAYS - 1), day, exact));
+    }
+
+    private Long countActiveUsers(LocalDate firstDay, LocalDate lastDay, boolean exact) {
+        if (exact) {
+            return analyticsMapper.getActiveUserCount(Timestamp.valueOf(firstDay.atStartOfDay()),
+                Timestamp.valueOf(lastDay.plusDays(1).atStartOfDay()));
+        }
+        return activeUserSketchService.countDistinctUsers(firstDay, lastDay);
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return new Timestamp(date.getTime()).toLocalDateTime().toLocalDate();
+    }
+
+    private record ActiveUsers(Long daily, Long weekly, Long monthly) {
+    }
+
     /**
      * Calculate growth rates for trend data points
      */
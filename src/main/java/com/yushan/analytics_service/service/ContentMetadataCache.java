@@ -0,0 +1,262 @@
+package com.yushan.analytics_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yushan.analytics_service.client.CoalescingContentClient;
+import com.yushan.analytics_service.dto.ChapterDTO;
+import com.yushan.analytics_service.dto.NovelDetailResponseDTO;
+import com.yushan.analytics_service.util.RedisUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Two-tier cache of novel and chapter metadata from the content service.
+ * Lookups go through a bounded in-process Caffeine cache, then Redis, and only the ids missing
+ * from both are fetched, through {@link CoalescingContentClient} so concurrent misses share batch calls.
+ * Redis entries carry the namespace version they were loaded under; {@link #invalidateAllNovels()} and
+ * {@link #invalidateAllChapters()} bump that version, which every instance notices on its next Redis read.
+ * Per-tier hit and miss counts are published as content.metadata.requests{type, tier, result}.
+ */
+@Slf4j
+@Component
+public class ContentMetadataCache {
+
+    @Autowired
+    private CoalescingContentClient coalescingContentClient;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.content-cache.local.max-size:10000}")
+    private long localMaxSize = 10000;
+
+    @Value("${analytics.content-cache.local.ttl-seconds:60}")
+    private long localTtlSeconds = 60;
+
+    @Value("${analytics.content-cache.redis.ttl-seconds:600}")
+    private long redisTtlSeconds = 600;
+
+    private static final String REQUESTS_COUNTER = "content.metadata.requests";
+
+    private MetadataCache<NovelDetailResponseDTO> novels;
+    private MetadataCache<ChapterDTO> chapters;
+
+    @PostConstruct
+    public void init() {
+        novels = new MetadataCache<>("novel", NovelDetailResponseDTO.class, coalescingContentClient::getNovels);
+        chapters = new MetadataCache<>("chapter", ChapterDTO.class, coalescingContentClient::getChapters);
+    }
+
+    /**
+     * Get novels by id. Novels that do not exist or could not be loaded are absent from the result.
+     */
+    public Map<Integer, NovelDetailResponseDTO> getNovels(Collection<Integer> novelIds) {
+        return novels.getAll(novelIds);
+    }
+
+    /**
+     * Get a single novel, or null if it does not exist or could not be loaded
+     */
+    public NovelDetailResponseDTO getNovel(Integer novelId) {
+        return novels.getAll(List.of(novelId)).get(novelId);
+    }
+
+    /**
+     * Get chapters by id. Chapters that do not exist or could not be loaded are absent from the result.
+     */
+    public Map<Integer, ChapterDTO> getChapters(Collection<Integer> chapterIds) {
+        return chapters.getAll(chapterIds);
+    }
+
+    /**
+     * Drop cached novels after they changed in the content service
+     */
+    public void invalidateNovels(Collection<Integer> novelIds) {
+        novels.invalidate(novelIds);
+    }
+
+    /**
+     * Drop cached chapters after they changed in the content service
+     */
+    public void invalidateChapters(Collection<Integer> chapterIds) {
+        chapters.invalidate(chapterIds);
+    }
+
+    /**
+     * Invalidate every cached novel on every instance by bumping the novel namespace version
+     */
+    public void invalidateAllNovels() {
+        novels.invalidateAll();
+    }
+
+    /**
+     * Invalidate every cached chapter on every instance by bumping the chapter namespace version
+     */
+    public void invalidateAllChapters() {
+        chapters.invalidateAll();
+    }
+
+    /**
+     * Redis value wrapper recording the namespace version the value was loaded under
+     */
+    static class VersionedValue {
+        private long version;
+        private Object value;
+
+        VersionedValue() {
+        }
+
+        VersionedValue(long version, Object value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    /**
+     * One cached namespace (novels or chapters)
+     */
+    private final class MetadataCache<V> {
+        private final String type;
+        private final Class<V> valueType;
+        private final Function<List<Integer>, Map<Integer, V>> batchLoader;
+        private final String keyPrefix;
+        private final String versionKey;
+        private final Cache<Integer, V> local;
+        // Last namespace version seen in Redis; a change means another instance invalidated everything
+        private volatile long knownVersion;
+
+        MetadataCache(String type, Class<V> valueType, Function<List<Integer>, Map<Integer, V>> batchLoader) {
+            this.type = type;
+            this.valueType = valueType;
+            this.batchLoader = batchLoader;
+            this.keyPrefix = "content:" + type + ":";
+            this.versionKey = keyPrefix + "version";
+            this.local = Caffeine.newBuilder()
+                    .maximumSize(localMaxSize)
+                    .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                    .build();
+        }
+
+        Map<Integer, V> getAll(Collection<Integer> ids) {
+            Map<Integer, V> result = new HashMap<>();
+            List<Integer> missing = new ArrayList<>();
+            for (Integer id : new LinkedHashSet<>(ids)) {
+                if (id == null) {
+                    continue;
+                }
+                V value = local.getIfPresent(id);
+                if (value != null) {
+                    result.put(id, value);
+                } else {
+                    missing.add(id);
+                }
+            }
+            count("local", "hit", result.size());
+            count("local", "miss", missing.size());
+            if (missing.isEmpty()) {
+                return result;
+            }
+
+            long version = readFromRedis(missing, result);
+            missing.removeIf(result::containsKey);
+            if (missing.isEmpty()) {
+                return result;
+            }
+
+            Map<String, Object> loaded = new HashMap<>();
+            try {
+                batchLoader.apply(missing).forEach((id, value) -> {
+                    result.put(id, value);
+                    local.put(id, value);
+                    loaded.put(keyPrefix + id, new VersionedValue(version, value));
+                });
+            } catch (Exception e) {
+                log.warn("Failed to load {} {}s from content service: {}", missing.size(), type, e.getMessage());
+                return result;
+            }
+            count("remote", "hit", loaded.size());
+            count("remote", "miss", missing.size() - loaded.size());
+
+            try {
+                redisUtil.setAllPipelined(loaded, Duration.ofSeconds(redisTtlSeconds));
+            } catch (Exception e) {
+                log.warn("Failed to write {} {}s to Redis: {}", loaded.size(), type, e.getMessage());
+            }
+            return result;
+        }
+
+        /**
+         * Fill result from Redis in one MGET that also reads the namespace version.
+         * Entries written under an older version count as misses.
+         *
+         * @return the current namespace version
+         */
+        private long readFromRedis(List<Integer> ids, Map<Integer, V> result) {
+            List<String> keys = new ArrayList<>(ids.size() + 1);
+            keys.add(versionKey);
+            ids.forEach(id -> keys.add(keyPrefix + id));
+            List<Object> values;
+            try {
+                values = redisUtil.multiGet(keys);
+            } catch (Exception e) {
+                log.warn("Failed to read {}s from Redis, falling back to content service: {}", type, e.getMessage());
+                count("redis", "miss", ids.size());
+                return knownVersion;
+            }
+
+            long version = values.get(0) instanceof Number number ? number.longValue() : 0L;
+            if (version != knownVersion) {
+                local.invalidateAll();
+                knownVersion = version;
+            }
+            int hits = 0;
+            for (int i = 0; i < ids.size(); i++) {
+                if (values.get(i + 1) instanceof VersionedValue cached
+                        && cached.version == version && valueType.isInstance(cached.value)) {
+                    V value = valueType.cast(cached.value);
+                    result.put(ids.get(i), value);
+                    local.put(ids.get(i), value);
+                    hits++;
+                }
+            }
+            count("redis", "hit", hits);
+            count("redis", "miss", ids.size() - hits);
+            return version;
+        }
+
+        void invalidate(Collection<Integer> ids) {
+            local.invalidateAll(ids);
+            redisUtil.delete(ids.stream().map(id -> keyPrefix + id).toList());
+        }
+
+        void invalidateAll() {
+            Long version = redisUtil.increment(versionKey);
+            local.invalidateAll();
+            if (version != null) {
+                knownVersion = version;
+            }
+        }
+
+        private void count(String tier, String result, int amount) {
+            if (amount > 0) {
+                meterRegistry.counter(REQUESTS_COUNTER, "type", type, "tier", tier, "result", result).increment(amount);
+            }
+        }
+    }
+}
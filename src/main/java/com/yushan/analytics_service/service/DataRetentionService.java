@@ -0,0 +1,125 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.config.AnalyticsProperties;
+import com.yushan.analytics_service.dao.RetentionMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies {@code analytics.retention} to reading events and their rollups.
+ * Raw events are only deleted before the day every rollup grain has reached, so hourly, daily, weekly and
+ * monthly trends never lose a period whose aggregate does not exist yet; while the aggregator lags,
+ * raw events are kept longer than {@code raw-data-days}. Whole expired months are dropped as partitions and
+ * the remaining expired rows are deleted in small chunks, each committed on its own,
+ * so no run holds long locks or writes one large burst of WAL.
+ * The history snapshot is not touched: it holds each reader's current position, not time-series data.
+ */
+@Slf4j
+@Service
+public class DataRetentionService {
+
+    @Autowired
+    private RetentionMapper retentionMapper;
+
+    @Autowired
+    private ReadingEventPartitionManager partitionManager;
+
+    @Autowired
+    private ActivityRollupService activityRollupService;
+
+    @Autowired
+    private AnalyticsProperties analyticsProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String PURGED_COUNTER = "analytics.retention.rows.purged";
+    private static final String DURATION_TIMER = "analytics.retention.duration";
+
+    @Scheduled(cron = "${analytics.retention.cron:0 30 0 * * ?}")
+    public void purgeExpiredData() {
+        try {
+            purgeExpiredData(LocalDate.now());
+        } catch (Exception e) {
+            log.error("Retention run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    void purgeExpiredData(LocalDate today) {
+        long start = System.nanoTime();
+        AnalyticsProperties.Retention retention = analyticsProperties.getRetention();
+        LocalDate rawCutoff = today.minusDays(retention.getRawDataDays());
+        LocalDate rolledUpBefore = activityRollupService.rolledUpBefore();
+        int partitionsDropped = 0;
+        long eventsPurged = 0;
+        int hourlyRollupsPurged = 0;
+        if (rolledUpBefore == null) {
+            log.warn("Keeping expired reading events until every rollup grain has run");
+        } else {
+            if (rolledUpBefore.isBefore(rawCutoff)) {
+                log.warn("Keeping reading events from {} on until they are rolled up", rolledUpBefore);
+                rawCutoff = rolledUpBefore;
+            }
+            Timestamp rawCutoffTime = Timestamp.valueOf(rawCutoff.atStartOfDay());
+            partitionsDropped = partitionManager.dropPartitionsBefore(rawCutoff);
+            eventsPurged = deleteExpiredEvents(rawCutoffTime, retention);
+            // Hourly detail is kept as long as the raw events it was built from
+            hourlyRollupsPurged = retentionMapper.deleteHourlyRollupsBefore(rawCutoffTime);
+            meterRegistry.counter(PURGED_COUNTER, "table", "activity_hourly_rollup").increment(hourlyRollupsPurged);
+        }
+
+        java.sql.Date rollupCutoff = java.sql.Date.valueOf(today.minusDays(retention.getAggregatedDataDays()));
+        int rollupsPurged = retentionMapper.deleteDailyRollupsBefore(rollupCutoff);
+        meterRegistry.counter(PURGED_COUNTER, "table", "activity_daily_rollup").increment(rollupsPurged);
+        int weeklyRollupsPurged = retentionMapper.deleteWeeklyRollupsBefore(rollupCutoff);
+        meterRegistry.counter(PURGED_COUNTER, "table", "activity_weekly_rollup").increment(weeklyRollupsPurged);
+        int monthlyRollupsPurged = retentionMapper.deleteMonthlyRollupsBefore(rollupCutoff);
+        meterRegistry.counter(PURGED_COUNTER, "table", "activity_monthly_rollup").increment(monthlyRollupsPurged);
+
+        long durationNanos = System.nanoTime() - start;
+        meterRegistry.timer(DURATION_TIMER).record(durationNanos, TimeUnit.NANOSECONDS);
+        log.info("Retention run: {} partitions dropped, {} events, {} hourly, {} daily, {} weekly and {} monthly "
+                        + "rollups purged in {} ms",
+                partitionsDropped, eventsPurged, hourlyRollupsPurged, rollupsPurged, weeklyRollupsPurged,
+                monthlyRollupsPurged, TimeUnit.NANOSECONDS.toMillis(durationNanos));
+    }
+
+    private long deleteExpiredEvents(Timestamp cutoff, AnalyticsProperties.Retention retention) {
+        int chunkSize = Math.max(retention.getDeleteChunkSize(), 1);
+        long purged = 0;
+        for (int chunk = 0; chunk < retention.getMaxChunksPerRun(); chunk++) {
+            int deleted = retentionMapper.deleteReadingEventsBefore(cutoff, chunkSize);
+            purged += deleted;
+            meterRegistry.counter(PURGED_COUNTER, "table", "reading_event").increment(deleted);
+            if (deleted < chunkSize) {
+                return purged;
+            }
+            if (!pause(retention.getChunkPauseMs())) {
+                return purged;
+            }
+        }
+        log.warn("Retention stopped after {} chunks with expired events left; the next run continues",
+                retention.getMaxChunksPerRun());
+        return purged;
+    }
+
+    private static boolean pause(long millis) {
+        if (millis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.yushan.analytics_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.yushan.analytics_service.dao.HistoryMapper;
+import com.yushan.analytics_service.dao.ReadingEventMapper;
+import com.yushan.analytics_service.dto.HistoryImportRecordDTO;
+import com.yushan.analytics_service.dto.HistoryImportResultDTO;
+import com.yushan.analytics_service.enums.HistoryImportFormat;
+import com.yushan.analytics_service.exception.ValidationException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk loads reading history from CSV or NDJSON request bodies.
+ * Rows are streamed with COPY into a transaction-scoped staging table, appended to reading_event and merged
+ * into history with the same upsert rules as live writes, in one transaction: either every row lands or none does.
+ * No remote validation is done, so imports are for trusted backfills only.
+ */
+@Slf4j
+@Service
+public class HistoryImportService {
+
+    @Autowired
+    private HistoryMapper historyMapper;
+
+    @Autowired
+    private ReadingEventMapper readingEventMapper;
+
+    @Autowired
+    private ActiveUserSketchService activeUserSketchService;
+
+    @Autowired
+    private ActivityRollupService activityRollupService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.history.import.progress-interval-rows:100000}")
+    private long progressIntervalRows = 100000;
+
+    static final String CSV_HEADER = "user_id,novel_id,chapter_id,update_time";
+    private static final String COPY_SQL =
+            "COPY history_import (user_id, novel_id, chapter_id, update_time) FROM STDIN WITH (FORMAT csv)";
+    // Rows are handed to the driver in chunks of about this size
+    private static final int COPY_CHUNK_CHARS = 64 * 1024;
+
+    /**
+     * Import history rows. CSV input has the columns of {@link #CSV_HEADER} (the header line is optional)
+     * with update_time in the database's local time; NDJSON input has one {@link HistoryImportRecordDTO} per line.
+     */
+    @Transactional
+    public HistoryImportResultDTO importHistory(InputStream body, HistoryImportFormat format) {
+        long start = System.nanoTime();
+        historyMapper.createImportStagingTable();
+
+        long rowsLoaded;
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            rowsLoaded = copyRows(copyManager, reader, format, start);
+        } catch (SQLException e) {
+            throw new ValidationException("History import rejected: " + e.getMessage());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read history import body", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+
+        readingEventMapper.insertFromImportStaging();
+        int rowsMerged = historyMapper.mergeImportStaging();
+        List<Date> importedDays = readingEventMapper.selectImportStagingDays();
+        if (!importedDays.isEmpty()) {
+            // Past days are usually rolled up already
+            activityRollupService.markLateReads(Collections.min(importedDays));
+        }
+        invalidateSketchesAfterCommit(importedDays);
+        long durationNanos = System.nanoTime() - start;
+        meterRegistry.counter("history.import.rows", "format", format.name()).increment(rowsLoaded);
+        meterRegistry.timer("history.import.duration", "format", format.name()).record(durationNanos, TimeUnit.NANOSECONDS);
+
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        long rowsPerSecond = rowsPerSecond(rowsLoaded, durationNanos);
+        log.info("Imported {} history rows ({} merged) from {} in {} ms, {} rows/s",
+                rowsLoaded, rowsMerged, format, durationMs, rowsPerSecond);
+        return new HistoryImportResultDTO(format, rowsLoaded, rowsMerged, durationMs, rowsPerSecond);
+    }
+
+    /**
+     * Imported days get their active-user sketches rebuilt; only once committed, or a rebuild could miss the rows
+     */
+    private void invalidateSketchesAfterCommit(List<Date> importedDays) {
+        if (importedDays.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            activeUserSketchService.invalidateDays(importedDays);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                activeUserSketchService.invalidateDays(importedDays);
+            }
+        });
+    }
+
+    private long copyRows(CopyManager copyManager, BufferedReader reader, HistoryImportFormat format, long start)
+            throws SQLException, IOException {
+        ObjectReader recordReader = objectMapper.readerFor(HistoryImportRecordDTO.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        CopyIn copyIn = copyManager.copyIn(COPY_SQL);
+        try {
+            StringBuilder chunk = new StringBuilder(COPY_CHUNK_CHARS + 256);
+            long rows = 0;
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == HistoryImportFormat.CSV) {
+                    if (lineNumber == 1 && line.trim().equalsIgnoreCase(CSV_HEADER)) {
+                        continue;
+                    }
+                    chunk.append(line.trim());
+                } else {
+                    chunk.append(toCsv(recordReader, line, lineNumber));
+                }
+                chunk.append('\n');
+                rows++;
+
+                if (chunk.length() >= COPY_CHUNK_CHARS) {
+                    writeChunk(copyIn, chunk);
+                }
+                if (rows % progressIntervalRows == 0) {
+                    log.info("History import progress: {} rows staged, {} rows/s",
+                            rows, rowsPerSecond(rows, System.nanoTime() - start));
+                }
+            }
+            writeChunk(copyIn, chunk);
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static String toCsv(ObjectReader recordReader, String line, long lineNumber) {
+        HistoryImportRecordDTO record;
+        try {
+            record = recordReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            throw new ValidationException("Malformed history record on line " + lineNumber + ": " + e.getOriginalMessage());
+        }
+        if (record.getUserId() == null || record.getNovelId() == null || record.getChapterId() == null
+                || record.getReadAt() == null) {
+            throw new ValidationException("History record on line " + lineNumber
+                    + " needs userId, novelId, chapterId and readAt");
+        }
+        // Timestamp.toString() renders the instant in JVM local time, as JDBC does for live writes
+        return record.getUserId() + "," + record.getNovelId() + "," + record.getChapterId() + ","
+                + new Timestamp(record.getReadAt().getTime());
+    }
+
+    private static void writeChunk(CopyIn copyIn, StringBuilder chunk) throws SQLException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        chunk.setLength(0);
+    }
+
+    private static long rowsPerSecond(long rows, long elapsedNanos) {
+        return elapsedNanos > 0 ? rows * TimeUnit.SECONDS.toNanos(1) / elapsedNanos : rows;
+    }
+}
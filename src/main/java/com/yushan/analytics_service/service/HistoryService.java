@@ -1,27 +1,41 @@
 package com.yushan.analytics_service.service;
 
-import com.yushan.analytics_service.client.ContentServiceClient;
-import com.yushan.analytics_service.client.UserServiceClient;
 import com.yushan.analytics_service.dao.HistoryMapper;
-import com.yushan.analytics_service.dto.ApiResponse;
+import com.yushan.analytics_service.dao.ReadingEventMapper;
 import com.yushan.analytics_service.dto.ChapterDTO;
+import com.yushan.analytics_service.dto.CursorPageResponseDTO;
 import com.yushan.analytics_service.dto.HistoryResponseDTO;
 import com.yushan.analytics_service.dto.NovelDetailResponseDTO;
 import com.yushan.analytics_service.dto.PageResponseDTO;
 import com.yushan.analytics_service.entity.History;
 import com.yushan.analytics_service.exception.ResourceNotFoundException;
 import com.yushan.analytics_service.exception.ValidationException;
+import com.yushan.analytics_service.util.CursorUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class HistoryService {
 
@@ -29,69 +43,112 @@ public class HistoryService {
     private HistoryMapper historyMapper;
 
     @Autowired
-    private ContentServiceClient contentServiceClient;
+    private ReadingEventMapper readingEventMapper;
 
     @Autowired
-    private UserServiceClient userServiceClient;
+    private ContentMetadataCache contentMetadataCache;
 
     @Autowired
     private LibraryService libraryService;
 
+    @Autowired
+    private HistoryWriteBuffer historyWriteBuffer;
+
+    @Autowired
+    private HistoryValidationCache historyValidationCache;
+
+    @Autowired
+    private ActiveUserSketchService activeUserSketchService;
+
+    @Autowired
+    private ActivityRollupService activityRollupService;
+
+    @Value("${analytics.history.enrichment-timeout-ms:2000}")
+    private long enrichmentTimeoutMs = 2000;
+
+    private static final int HISTORY_BATCH_SIZE = 500;
+
+    private final ExecutorService enrichmentExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
     /**
      * Add or update a viewing history record
      */
     @Transactional
     public void addOrUpdateHistory(UUID userId, Integer novelId, Integer chapterId) {
-        // Validate user exists via User Service
-        if (!userServiceClient.validateUser(userId)) {
+        // Validate user, novel and chapter ownership; warm entries skip the remote calls
+        if (!historyValidationCache.isKnownUser(userId)) {
             throw new ResourceNotFoundException("User not found with id: " + userId);
         }
-
-        // Validate novel exists via Content Service
-        try {
-            ApiResponse<NovelDetailResponseDTO> novelResponse = contentServiceClient.getNovelById(novelId);
-            if (novelResponse == null || novelResponse.getCode() == null || !novelResponse.getCode().equals(200) || novelResponse.getData() == null) {
-                throw new ResourceNotFoundException("Novel not found with id: " + novelId);
-            }
-        } catch (Exception e) {
+        if (!historyValidationCache.isKnownNovel(novelId)) {
             throw new ResourceNotFoundException("Novel not found with id: " + novelId);
         }
+        Integer chapterNovelId = historyValidationCache.findChapterNovelId(chapterId)
+                .orElseThrow(() -> new ResourceNotFoundException("Chapter not found with id: " + chapterId));
+        if (!chapterNovelId.equals(novelId)) {
+            throw new ValidationException("Chapter doesn't belong to novel id: " + novelId);
+        }
+
+        // Write-behind: rapid chapter flips of the same novel collapse into one upsert
+        historyWriteBuffer.submit(userId, novelId, chapterId);
+    }
 
-        // Validate chapter exists and belongs to novel
-        try {
-            ApiResponse<List<ChapterDTO>> chapterResponse = contentServiceClient.getChaptersBatch(java.util.List.of(chapterId));
-            if (chapterResponse == null || chapterResponse.getCode() == null || !chapterResponse.getCode().equals(200) || 
-                chapterResponse.getData() == null || chapterResponse.getData().isEmpty()) {
-                throw new ResourceNotFoundException("Chapter not found with id: " + chapterId);
+    /**
+     * Record chapter reads in bulk, e.g. from the reading event stream.
+     * Reads are trusted (already validated by the producing service), so no remote lookups are made.
+     * Unlike {@link #addOrUpdateHistory} this writes synchronously, so callers can acknowledge the reads afterwards.
+     * Every read is appended to reading_event; for the snapshot, several reads of the same novel by the same user
+     * collapse into the latest one before the multi-row upsert. Both writes share one transaction.
+     * Reads that carry an event id in uuid are idempotent: a redelivered read is skipped by reading_event and
+     * cannot move the snapshot back. Reads without one get a random id.
+     *
+     * @param reads history records carrying userId, novelId, chapterId, the read time as updateTime
+     *              and optionally the event id as uuid
+     */
+    @Transactional
+    public void recordReads(Collection<History> reads) {
+        List<History> events = new ArrayList<>(reads.size());
+        Map<UserNovel, History> latestReads = new LinkedHashMap<>();
+        for (History read : reads) {
+            if (read.getUserId() == null || read.getNovelId() == null || read.getChapterId() == null) {
+                continue;
             }
-            ChapterDTO chapter = chapterResponse.getData().get(0);
-            if (!chapter.getNovelId().equals(novelId)) {
-                throw new ValidationException("Chapter doesn't belong to novel id: " + novelId);
+            if (read.getUpdateTime() == null) {
+                read.setUpdateTime(new Date());
             }
-        } catch (ResourceNotFoundException | ValidationException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new ResourceNotFoundException("Chapter not found with id: " + chapterId);
+            if (read.getUuid() == null) {
+                read.setUuid(UUID.randomUUID());
+            }
+            events.add(read);
+            latestReads.merge(new UserNovel(read.getUserId(), read.getNovelId()), read,
+                    (current, candidate) -> candidate.getUpdateTime().before(current.getUpdateTime()) ? current : candidate);
         }
-        History existingHistory = historyMapper.selectByUserAndNovel(userId, novelId);
-
-        if (existingHistory != null) {
-            // Update existing record
-            existingHistory.setChapterId(chapterId);
-            existingHistory.setUpdateTime(new Date());
-            historyMapper.updateByPrimaryKeySelective(existingHistory);
-        } else {
-            // Create new record
-            History newHistory = new History();
-            newHistory.setUuid(UUID.randomUUID());
-            newHistory.setUserId(userId);
-            newHistory.setNovelId(novelId);
-            newHistory.setChapterId(chapterId);
-            Date now = new Date();
-            newHistory.setCreateTime(now);
-            newHistory.setUpdateTime(now);
-            historyMapper.insertSelective(newHistory);
+
+        for (int start = 0; start < events.size(); start += HISTORY_BATCH_SIZE) {
+            readingEventMapper.batchInsert(events.subList(start, Math.min(start + HISTORY_BATCH_SIZE, events.size())));
         }
+        // Consumer lag can deliver reads for buckets that were already rolled up
+        events.stream().map(History::getUpdateTime).min(Date::compareTo).ifPresent(activityRollupService::markLateReads);
+        List<History> pending = new ArrayList<>(latestReads.values());
+        for (int start = 0; start < pending.size(); start += HISTORY_BATCH_SIZE) {
+            historyMapper.batchUpsert(pending.subList(start, Math.min(start + HISTORY_BATCH_SIZE, pending.size())));
+        }
+        recordSketchesAfterCommit(events);
+    }
+
+    /**
+     * Readers join the active-user sketches only once the reads are committed, so a rolled back batch adds no one
+     */
+    private void recordSketchesAfterCommit(List<History> events) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            activeUserSketchService.recordReads(events);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                activeUserSketchService.recordReads(events);
+            }
+        });
     }
 
     /**
@@ -107,6 +164,70 @@ public class HistoryService {
             return new PageResponseDTO<>(Collections.emptyList(), totalElements, page, size);
         }
 
+        return new PageResponseDTO<>(enrich(userId, histories), totalElements, page, size);
+    }
+
+    /**
+     * Get the user's viewing history with keyset pagination, newest first.
+     * Each page seeks straight to the cursor position on (update_time, id), so deep pages cost the same as the
+     * first one; the total count is only computed when requested.
+     *
+     * @param cursor opaque cursor from the previous page's nextCursor, or null for the first page
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponseDTO<HistoryResponseDTO> getUserHistoryByCursor(UUID userId, String cursor, int size,
+                                                                          boolean includeTotal) {
+        if (size <= 0) {
+            throw new ValidationException("Page size must be positive");
+        }
+        CursorUtil.Position position = CursorUtil.decode(cursor);
+        // Fetch one extra row to learn whether another page follows without counting
+        List<History> histories = historyMapper.selectByUserIdAfterCursor(userId,
+                position != null ? position.time() : null,
+                position != null ? position.id() : null,
+                size + 1);
+        Long totalElements = includeTotal ? historyMapper.countByUserId(userId) : null;
+
+        String nextCursor = null;
+        if (histories.size() > size) {
+            histories = histories.subList(0, size);
+            History last = histories.get(size - 1);
+            nextCursor = CursorUtil.encode(last.getUpdateTime(), last.getId());
+        }
+        if (histories.isEmpty()) {
+            return new CursorPageResponseDTO<>(Collections.emptyList(), size, null, totalElements);
+        }
+        return new CursorPageResponseDTO<>(enrich(userId, histories), size, nextCursor, totalElements);
+    }
+
+    /**
+     * Delete a single history record
+     */
+    public void deleteHistory(UUID userId, Integer historyId) {
+        History history = historyMapper.selectByPrimaryKey(historyId);
+        if (history == null || !history.getUserId().equals(userId)) {
+            throw new ResourceNotFoundException("History record not found or you don't have permission to delete it.");
+        }
+        // A buffered write for this novel would otherwise be flushed after the delete and restore the row
+        historyWriteBuffer.discardPending(userId, history.getNovelId());
+        historyMapper.deleteByPrimaryKey(historyId);
+    }
+
+    /**
+     * Clear all user history
+     */
+    public void clearHistory(UUID userId) {
+        historyWriteBuffer.discardPending(userId, null);
+        historyMapper.deleteByUserId(userId);
+    }
+
+    private record UserNovel(UUID userId, Integer novelId) {
+    }
+
+    /**
+     * Join history rows with novel, chapter and library data
+     */
+    private List<HistoryResponseDTO> enrich(UUID userId, List<History> histories) {
         // Extract IDs
         List<Integer> novelIds = histories.stream()
                 .map(History::getNovelId)
@@ -117,66 +238,49 @@ public class HistoryService {
                 .distinct()
                 .collect(Collectors.toList());
 
-        // Fetch data from Content Service
-        List<NovelDetailResponseDTO> novels = Collections.emptyList();
-        List<ChapterDTO> chapters = Collections.emptyList();
-        
-        try {
-            ApiResponse<List<NovelDetailResponseDTO>> novelResponse = contentServiceClient.getNovelsBatch(novelIds);
-            if (novelResponse != null && novelResponse.getCode() != null && novelResponse.getCode().equals(200) && novelResponse.getData() != null) {
-                novels = novelResponse.getData();
-            }
-        } catch (Exception e) {
-            // Log error but continue with empty list
-        }
-
-        try {
-            ApiResponse<List<ChapterDTO>> chapterResponse = contentServiceClient.getChaptersBatch(chapterIds);
-            if (chapterResponse != null && chapterResponse.getCode() != null && chapterResponse.getCode().equals(200) && chapterResponse.getData() != null) {
-                chapters = chapterResponse.getData();
-            }
-        } catch (Exception e) {
-            // Log error but continue with empty list
-        }
+        // Novels, chapters and library status are independent lookups, so they run concurrently;
+        // a lookup that fails or outlives the timeout degrades to partial DTOs instead of failing the page
+        CompletableFuture<Map<Integer, NovelDetailResponseDTO>> novelsFuture = lookupAsync("novels",
+                () -> contentMetadataCache.getNovels(novelIds), Collections.emptyMap());
+        CompletableFuture<Map<Integer, ChapterDTO>> chaptersFuture = lookupAsync("chapters",
+                () -> contentMetadataCache.getChapters(chapterIds), Collections.emptyMap());
+        CompletableFuture<Map<Integer, Boolean>> libraryFuture = lookupAsync("library status",
+                () -> libraryService.checkNovelsInLibrary(userId, novelIds), Collections.emptyMap());
 
-        // Convert to maps for easy lookup
-        Map<Integer, NovelDetailResponseDTO> novelMap = novels.stream()
-                .collect(Collectors.toMap(NovelDetailResponseDTO::getId, n -> n));
-        Map<Integer, ChapterDTO> chapterMap = chapters.stream()
-                .collect(Collectors.toMap(ChapterDTO::getId, c -> c));
+        Map<Integer, NovelDetailResponseDTO> novelMap = novelsFuture.join();
+        Map<Integer, ChapterDTO> chapterMap = chaptersFuture.join();
+        Map<Integer, Boolean> libraryStatusMap = libraryFuture.join();
 
         // Category names are already in NovelDetailResponseDTO, no need to fetch separately
-        Map<Integer, String> categoryMap = novels.stream()
+        Map<Integer, String> categoryMap = novelMap.values().stream()
                 .filter(n -> n.getCategoryId() != null && n.getCategoryName() != null)
                 .collect(Collectors.toMap(NovelDetailResponseDTO::getCategoryId, NovelDetailResponseDTO::getCategoryName, (a, b) -> a));
 
-        // Check library status
-        Map<Integer, Boolean> libraryStatusMap = libraryService.checkNovelsInLibrary(userId, novelIds);
-
         // Convert to DTOs
-        List<HistoryResponseDTO> dtos = histories.stream()
+        return histories.stream()
                 .map(history -> convertToRichDTO(history, novelMap, chapterMap, categoryMap, libraryStatusMap))
                 .collect(Collectors.toList());
-
-        return new PageResponseDTO<>(dtos, totalElements, page, size);
     }
 
     /**
-     * Delete a single history record
+     * Run an enrichment lookup on a virtual thread. The lookups are shared across callers through the metadata
+     * cache, so they are made without the caller's credentials; failures and timeouts complete with the fallback.
      */
-    public void deleteHistory(UUID userId, Integer historyId) {
-        History history = historyMapper.selectByPrimaryKey(historyId);
-        if (history == null || !history.getUserId().equals(userId)) {
-            throw new ResourceNotFoundException("History record not found or you don't have permission to delete it.");
-        }
-        historyMapper.deleteByPrimaryKey(historyId);
+    private <T> CompletableFuture<T> lookupAsync(String description, Supplier<T> call, T fallback) {
+        return CompletableFuture.supplyAsync(() -> {
+                    T result = call.get();
+                    return result != null ? result : fallback;
+                }, enrichmentExecutor)
+                .exceptionally(e -> {
+                    log.warn("History enrichment lookup for {} failed: {}", description, e.getMessage());
+                    return fallback;
+                })
+                .completeOnTimeout(fallback, enrichmentTimeoutMs, TimeUnit.MILLISECONDS);
     }
 
-    /**
-     * Clear all user history
-     */
-    public void clearHistory(UUID userId) {
-        historyMapper.deleteByUserId(userId);
+    @PreDestroy
+    public void shutdown() {
+        enrichmentExecutor.shutdownNow();
     }
 
     private HistoryResponseDTO convertToRichDTO(
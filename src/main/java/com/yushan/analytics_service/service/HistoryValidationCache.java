@@ -0,0 +1,138 @@
+package com.yushan.analytics_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.yushan.analytics_service.client.CoalescingContentClient;
+import com.yushan.analytics_service.client.UserServiceClient;
+import com.yushan.analytics_service.dto.ApiResponse;
+import com.yushan.analytics_service.dto.ChapterDTO;
+import com.yushan.analytics_service.dto.UserProfileResponseDTO;
+import feign.FeignException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Local cache of the remote lookups that guard history writes: known users, known novels and
+ * which novel a chapter belongs to. Not-found answers are cached too, for a shorter time.
+ * Remote failures are never cached, so an outage does not pin "not found" for anyone.
+ * Hit rates are published as cache.gets{cache=history.validation.*}.
+ */
+@Slf4j
+@Component
+public class HistoryValidationCache {
+
+    @Autowired
+    private UserServiceClient userServiceClient;
+
+    @Autowired
+    private CoalescingContentClient coalescingContentClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.history.validation-cache.max-size:100000}")
+    private long maxSize = 100000;
+
+    @Value("${analytics.history.validation-cache.ttl-seconds:600}")
+    private long ttlSeconds = 600;
+
+    @Value("${analytics.history.validation-cache.negative-ttl-seconds:30}")
+    private long negativeTtlSeconds = 30;
+
+    private Cache<UUID, Boolean> users;
+    private Cache<Integer, Boolean> novels;
+    private Cache<Integer, Optional<Integer>> chapterNovels;
+
+    @PostConstruct
+    public void init() {
+        users = buildCache("history.validation.user", Boolean.FALSE::equals);
+        novels = buildCache("history.validation.novel", Boolean.FALSE::equals);
+        chapterNovels = buildCache("history.validation.chapter", Optional::isEmpty);
+    }
+
+    /**
+     * Whether the user exists in the user service
+     */
+    public boolean isKnownUser(UUID userId) {
+        return Boolean.TRUE.equals(users.get(userId, id -> lookup("user " + id, () -> {
+            ApiResponse<UserProfileResponseDTO> response = userServiceClient.getUser(id);
+            return isSuccess(response) && response.getData() != null;
+        }, false)));
+    }
+
+    /**
+     * Whether the novel exists in the content service
+     */
+    public boolean isKnownNovel(Integer novelId) {
+        return Boolean.TRUE.equals(novels.get(novelId, id -> lookup("novel " + id,
+                () -> coalescingContentClient.getNovel(id) != null, false)));
+    }
+
+    /**
+     * The id of the novel a chapter belongs to, or empty if the chapter does not exist or cannot be looked up
+     */
+    public Optional<Integer> findChapterNovelId(Integer chapterId) {
+        Optional<Integer> novelId = chapterNovels.get(chapterId, id -> lookup("chapter " + id,
+                () -> Optional.ofNullable(coalescingContentClient.getChapter(id)).map(ChapterDTO::getNovelId),
+                Optional.empty()));
+        return novelId != null ? novelId : Optional.empty();
+    }
+
+    /**
+     * Run a remote lookup. A 404 counts as a definite not-found answer and is cached;
+     * any other failure returns null, which Caffeine does not store.
+     */
+    private <V> V lookup(String description, Supplier<V> call, V notFound) {
+        try {
+            return call.get();
+        } catch (FeignException.NotFound e) {
+            return notFound;
+        } catch (Exception e) {
+            log.warn("Validation lookup for {} failed, not caching: {}", description, e.getMessage());
+            return null;
+        }
+    }
+
+    private <K, V> Cache<K, V> buildCache(String name, Predicate<V> isNegative) {
+        long ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        long negativeTtlNanos = Duration.ofSeconds(negativeTtlSeconds).toNanos();
+        Cache<K, V> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<K, V>() {
+                    @Override
+                    public long expireAfterCreate(K key, V value, long currentTime) {
+                        return isNegative.test(value) ? negativeTtlNanos : ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(K key, V value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(K key, V value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        return cache;
+    }
+
+    private static boolean isSuccess(ApiResponse<?> response) {
+        return response != null && response.getCode() != null && response.getCode().equals(200);
+    }
+}
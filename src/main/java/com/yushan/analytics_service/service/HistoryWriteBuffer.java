@@ -0,0 +1,314 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.dao.HistoryMapper;
+import com.yushan.analytics_service.dao.ReadingEventMapper;
+import com.yushan.analytics_service.entity.History;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind buffer for chapter-progress writes.
+ * Snapshot writes are coalesced per (user, novel) so only the latest chapter is kept, while every read is kept
+ * for the reading_event log. Both are flushed in one transaction of multi-row statements at most
+ * {@code flush-interval-ms} later, or as soon as {@code max-batch-size} rows are pending.
+ * When {@code max-pending} rows or events are waiting the caller flushes inline, which throttles producers to the
+ * database's pace instead of growing the buffer without bound. Pending rows are drained on shutdown.
+ * Buffered writes become visible to history reads only after the flush.
+ */
+@Slf4j
+@Component
+public class HistoryWriteBuffer {
+
+    @Autowired
+    private HistoryMapper historyMapper;
+
+    @Autowired
+    private ReadingEventMapper readingEventMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ActiveUserSketchService activeUserSketchService;
+
+    @Autowired
+    private ActivityRollupService activityRollupService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.history.buffer.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${analytics.history.buffer.flush-interval-ms:1000}")
+    private long flushIntervalMs = 1000;
+
+    @Value("${analytics.history.buffer.max-batch-size:500}")
+    private int maxBatchSize = 500;
+
+    @Value("${analytics.history.buffer.max-pending:10000}")
+    private int maxPending = 10000;
+
+    private final ConcurrentHashMap<UserNovel, History> pending = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<History> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingEventCount = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final AtomicLong submittedSinceFlush = new AtomicLong();
+    private ScheduledExecutorService flusher;
+    // Submits enqueue under the read lock and shutdown drains under the write lock, so no write can be queued
+    // after the final drain; once closed, writes bypass the buffer
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    private Counter submittedCounter;
+    private Counter writtenCounter;
+    private DistributionSummary coalesceRatio;
+    private Timer flushTimer;
+
+    @PostConstruct
+    public void start() {
+        meterRegistry.gauge("history.buffer.depth", pending, ConcurrentHashMap::size);
+        submittedCounter = meterRegistry.counter("history.buffer.submitted");
+        writtenCounter = meterRegistry.counter("history.buffer.written");
+        coalesceRatio = DistributionSummary.builder("history.buffer.coalesce.ratio")
+                .description("Writes submitted per row flushed")
+                .register(meterRegistry);
+        flushTimer = meterRegistry.timer("history.buffer.flush.duration");
+
+        if (enabled) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "history-write-buffer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Queue a chapter-progress write. An already pending write for the same user and novel is replaced
+     * unless it is newer. With the buffer disabled the write goes straight to the database.
+     */
+    public void submit(UUID userId, Integer novelId, Integer chapterId) {
+        History read = new History();
+        read.setUuid(UUID.randomUUID());
+        read.setUserId(userId);
+        read.setNovelId(novelId);
+        read.setChapterId(chapterId);
+        read.setUpdateTime(new Date());
+
+        closeLock.readLock().lock();
+        try {
+            if (!enabled || closed) {
+                writeThrough(read);
+                return;
+            }
+            enqueue(read);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write every pending row and event to the database in one transaction. Only one flush runs at a time;
+     * if it fails everything is put back, except rows for which a newer write arrived meanwhile.
+     *
+     * @return the number of history rows written
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            if (pending.isEmpty() && pendingEvents.isEmpty()) {
+                return 0;
+            }
+            long submitted = submittedSinceFlush.getAndSet(0);
+            List<History> drained = new ArrayList<>(pending.size());
+            for (UserNovel key : pending.keySet()) {
+                History read = pending.remove(key);
+                if (read != null) {
+                    drained.add(read);
+                }
+            }
+            List<History> events = new ArrayList<>();
+            History event;
+            while ((event = pendingEvents.poll()) != null) {
+                events.add(event);
+            }
+            pendingEventCount.addAndGet(-events.size());
+
+            Timer.Sample sample = Timer.start(meterRegistry);
+            int written = 0;
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (int start = 0; start < events.size(); start += maxBatchSize) {
+                        readingEventMapper.batchInsert(events.subList(start, Math.min(start + maxBatchSize, events.size())));
+                    }
+                    // Reads held back by failed flushes can outlast the rollup lateness allowance
+                    events.stream().map(History::getUpdateTime).min(Date::compareTo)
+                            .ifPresent(activityRollupService::markLateReads);
+                    for (int start = 0; start < drained.size(); start += maxBatchSize) {
+                        historyMapper.batchUpsert(drained.subList(start, Math.min(start + maxBatchSize, drained.size())));
+                    }
+                });
+                written = drained.size();
+                activeUserSketchService.recordReads(events);
+            } catch (RuntimeException e) {
+                requeue(drained);
+                pendingEvents.addAll(events);
+                pendingEventCount.addAndGet(events.size());
+                submittedSinceFlush.addAndGet(submitted);
+                throw e;
+            } finally {
+                sample.stop(flushTimer);
+                writtenCounter.increment(written);
+            }
+            if (written > 0) {
+                coalesceRatio.record((double) submitted / written);
+            }
+            log.debug("Flushed {} history rows and {} reading events for {} submitted writes",
+                    written, events.size(), submitted);
+            return written;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Drop the pending snapshot rows of a user, for one novel or for all of them when novelId is null.
+     * Waits for a running flush, so call this before deleting the user's history; otherwise a write submitted
+     * just before the delete is flushed after it and brings the row back. Pending reading events are kept.
+     *
+     * @return the number of rows dropped
+     */
+    public int discardPending(UUID userId, Integer novelId) {
+        flushLock.lock();
+        try {
+            int discarded = 0;
+            for (UserNovel key : pending.keySet()) {
+                if (key.userId().equals(userId) && (novelId == null || key.novelId().equals(novelId))
+                        && pending.remove(key) != null) {
+                    discarded++;
+                }
+            }
+            return discarded;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Stop the scheduled flushes and drain everything still pending
+     */
+    @PreDestroy
+    public void shutdown() {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+            if (flusher != null) {
+                flusher.shutdown();
+                try {
+                    flusher.awaitTermination(flushIntervalMs * 2, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            try {
+                int written = flush();
+                log.info("Drained {} pending history rows on shutdown", written);
+            } catch (RuntimeException e) {
+                log.error("Failed to drain {} pending history rows on shutdown: {}", pending.size(), e.getMessage(), e);
+            }
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of rows waiting to be flushed
+     */
+    public int depth() {
+        return pending.size();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Failed to flush {} pending history rows, will retry: {}", pending.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Store one read right away, through the same guarded upsert as a flush so an older write never moves the
+     * snapshot backwards
+     */
+    private void writeThrough(History read) {
+        transactionTemplate.executeWithoutResult(status -> {
+            readingEventMapper.batchInsert(List.of(read));
+            historyMapper.batchUpsert(List.of(read));
+        });
+        activeUserSketchService.recordReads(List.of(read));
+    }
+
+    private void enqueue(History read) {
+        UserNovel key = new UserNovel(read.getUserId(), read.getNovelId());
+        if ((pending.size() >= maxPending && !pending.containsKey(key)) || pendingEventCount.get() >= maxPending) {
+            // Backpressure: the caller pays for the flush instead of the buffer growing further
+            flush();
+        }
+        pendingEvents.add(read);
+        pendingEventCount.incrementAndGet();
+        pending.merge(key, read, (current, candidate) ->
+                candidate.getUpdateTime().before(current.getUpdateTime()) ? current : candidate);
+        submittedCounter.increment();
+        submittedSinceFlush.incrementAndGet();
+
+        if ((pending.size() >= maxBatchSize || pendingEventCount.get() >= maxBatchSize)
+                && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                // The write is queued either way; the next scheduled flush or the shutdown drain picks it up
+                flushRequested.set(false);
+                log.warn("Could not schedule an early history flush: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void requeue(List<History> reads) {
+        for (History read : reads) {
+            pending.merge(new UserNovel(read.getUserId(), read.getNovelId()), read,
+                    (current, failed) -> failed.getUpdateTime().after(current.getUpdateTime()) ? failed : current);
+        }
+    }
+
+    private record UserNovel(UUID userId, Integer novelId) {
+    }
+}
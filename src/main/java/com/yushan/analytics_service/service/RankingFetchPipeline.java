@@ -0,0 +1,233 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.dto.PageResponseDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Fetches paged and batched data from other services for the ranking rebuild.
+ * Requests fan out on virtual threads, bounded by a configurable concurrency cap,
+ * and each request is retried with backoff. Results are always merged in request order.
+ */
+@Slf4j
+@Component
+public class RankingFetchPipeline {
+
+    @Value("${analytics.ranking.fetch.concurrency:8}")
+    private int concurrency = 8;
+
+    @Value("${analytics.ranking.fetch.max-retries:2}")
+    private int maxRetries = 2;
+
+    @Value("${analytics.ranking.fetch.retry-backoff-ms:200}")
+    private long retryBackoffMs = 200;
+
+    /**
+     * Fetch every page of a paged endpoint. The first page is fetched alone to learn the page count,
+     * the remaining pages are fetched concurrently.
+     *
+     * @param source      name used in logs
+     * @param pageFetcher returns the page for the given index, or null when the call failed
+     * @param maxPages    safety cap on the number of pages fetched
+     * @return the content of all pages, in page order
+     * @throws IllegalStateException if a page still fails after all retries
+     */
+    public <T> List<T> fetchAllPages(String source, IntFunction<PageResponseDTO<T>> pageFetcher, int maxPages) {
+        List<List<T>> pages = new ArrayList<>();
+        fetchPages(source, pageFetcher, maxPages, (content, page) -> {
+            while (pages.size() <= page) {
+                pages.add(null);
+            }
+            pages.set(page, content);
+        });
+
+        List<T> merged = new ArrayList<>();
+        pages.forEach(merged::addAll);
+        log.info("Fetched {} {} across {} pages", merged.size(), source, pages.size());
+        return merged;
+    }
+
+    /**
+     * Stream every page of a paged endpoint into a consumer instead of collecting them.
+     * Pages are handed over as soon as they arrive, so they come in completion order rather than page order,
+     * but the consumer is never called concurrently and needs no synchronisation of its own.
+     * At most {@code concurrency} pages are held in memory at any time.
+     *
+     * @param source       name used in logs
+     * @param pageFetcher  returns the page for the given index, or null when the call failed
+     * @param maxPages     safety cap on the number of pages fetched
+     * @param pageConsumer receives the content of each page
+     * @return the number of items handed to the consumer
+     * @throws IllegalStateException if a page still fails after all retries
+     */
+    public <T> long forEachPage(String source, IntFunction<PageResponseDTO<T>> pageFetcher, int maxPages,
+                                Consumer<List<T>> pageConsumer) {
+        long[] items = new long[1];
+        int pages = fetchPages(source, pageFetcher, maxPages, (content, page) -> {
+            pageConsumer.accept(content);
+            items[0] += content.size();
+        });
+        log.info("Streamed {} {} across {} pages", items[0], source, pages);
+        return items[0];
+    }
+
+    /**
+     * Fetch page 0, then the remaining pages concurrently, handing each page to the consumer under a lock.
+     * A page only releases its concurrency permit once it has been consumed.
+     *
+     * @return the number of pages fetched
+     */
+    private <T> int fetchPages(String source, IntFunction<PageResponseDTO<T>> pageFetcher, int maxPages,
+                               ObjIntConsumer<List<T>> consumer) {
+        PageResponseDTO<T> firstPage = withRetry(source + " page 0", () -> pageFetcher.apply(0));
+        int totalPages = Math.max(Math.min(pageCount(firstPage), maxPages), 1);
+        consumer.accept(contentOf(firstPage), 0);
+
+        ReentrantLock consumerLock = new ReentrantLock();
+        runBounded(totalPages - 1, index -> {
+            int page = index + 1;
+            PageResponseDTO<T> pageData = withRetry(source + " page " + page, () -> pageFetcher.apply(page));
+            consumerLock.lock();
+            try {
+                consumer.accept(contentOf(pageData), page);
+            } finally {
+                consumerLock.unlock();
+            }
+        });
+        return totalPages;
+    }
+
+    private static <T> List<T> contentOf(PageResponseDTO<T> page) {
+        return page.getContent() != null ? page.getContent() : Collections.emptyList();
+    }
+
+    /**
+     * Fetch data for a list of items in fixed-size batches.
+     * A batch that still fails after all retries is skipped, so one bad batch doesn't lose the rest.
+     *
+     * @param source       name used in logs
+     * @param items        items to split into batches
+     * @param batchSize    maximum items per request
+     * @param batchFetcher returns the results for a batch, or null when the call failed
+     * @return the results of all successful batches, in batch order
+     */
+    public <I, R> List<R> fetchInBatches(String source, List<I> items, int batchSize,
+                                         Function<List<I>, List<R>> batchFetcher) {
+        int batches = (items.size() + batchSize - 1) / batchSize;
+        List<List<R>> results = new ArrayList<>(Collections.nCopies(batches, Collections.emptyList()));
+
+        runBounded(batches, batch -> {
+            int start = batch * batchSize;
+            List<I> slice = items.subList(start, Math.min(start + batchSize, items.size()));
+            try {
+                results.set(batch, withRetry(source + " batch " + batch, () -> batchFetcher.apply(slice)));
+            } catch (IllegalStateException e) {
+                log.warn("Skipping {} batch starting at index {}: {}", source, start, e.getMessage());
+            }
+        });
+
+        List<R> merged = new ArrayList<>();
+        results.forEach(merged::addAll);
+        return merged;
+    }
+
+    private static int pageCount(PageResponseDTO<?> page) {
+        if (page.getTotalPages() > 0) {
+            return page.getTotalPages();
+        }
+        return page.getSize() > 0 ? (int) Math.ceil((double) page.getTotalElements() / page.getSize()) : 1;
+    }
+
+    /**
+     * Run tasks 0..count-1 on virtual threads with at most {@code concurrency} in flight.
+     * The first failure cancels the remaining tasks and is rethrown: tasks that have not started yet
+     * skip their work, and tasks waiting for a permit or a retry backoff are interrupted.
+     */
+    private void runBounded(int count, IntConsumer task) {
+        if (count <= 0) {
+            return;
+        }
+        Semaphore permits = new Semaphore(Math.max(concurrency, 1));
+        AtomicBoolean failed = new AtomicBoolean();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    try {
+                        if (!failed.get()) {
+                            task.accept(index);
+                        }
+                    } catch (RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    executor.shutdownNow();
+                    if (e.getCause() instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    throw new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    executor.shutdownNow();
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while fetching ranking data", e);
+                }
+            }
+        }
+    }
+
+    private <T> T withRetry(String description, Supplier<T> call) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                T result = call.get();
+                if (result != null) {
+                    return result;
+                }
+                log.warn("Fetching {} returned no data (attempt {})", description, attempt + 1);
+            } catch (Exception e) {
+                log.warn("Fetching {} failed (attempt {}): {}", description, attempt + 1, e.getMessage());
+            }
+            if (attempt >= maxRetries) {
+                throw new IllegalStateException("Failed to fetch " + description + " after " + (attempt + 1) + " attempts");
+            }
+            try {
+                Thread.sleep(retryBackoffMs * (attempt + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while fetching " + description, e);
+            }
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.yushan.analytics_service.service;
 
-import com.yushan.analytics_service.client.ContentServiceClient;
 import com.yushan.analytics_service.client.GamificationServiceClient;
 import com.yushan.analytics_service.client.UserServiceClient;
 import com.yushan.analytics_service.dto.ApiResponse;
@@ -13,17 +12,17 @@ import com.yushan.analytics_service.exception.ResourceNotFoundException;
 import com.yushan.analytics_service.util.RedisUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.UUID;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -32,7 +31,7 @@ import java.util.stream.Collectors;
 public class RankingService {
 
     @Autowired
-    private ContentServiceClient contentServiceClient;
+    private ContentMetadataCache contentMetadataCache;
 
     @Autowired
     private UserServiceClient userServiceClient;
@@ -43,8 +42,16 @@ public class RankingService {
     @Autowired
     private RedisUtil redisUtil;
 
+    private static final String RANK_USER_EXP = "ranking:user:exp";
+    private static final long USER_LEVEL_SCORE_FACTOR = 1000000L;
+    private static final String RANK_AUTHOR_VOTE = "ranking:author:vote";
+    private static final String RANK_AUTHOR_VIEW = "ranking:author:view";
+    private static final String RANK_AUTHOR_NOVEL_NUM = "ranking:author:novelNum";
+    private static final String RANK_AUTHOR_PROFILE = "ranking:author:profile";
+
     /**
-     * Get novel ranking with pagination - fetches all novels and sorts by votes
+     * Get novel ranking with pagination - reads the requested window from the ranking
+     * sorted set and hydrates only those novels from the content service
      */
     public PageResponseDTO<NovelDetailResponseDTO> rankNovel(
             Integer page, Integer size, String sortType, Integer categoryId, String timeRange) {
@@ -53,56 +60,36 @@ public class RankingService {
                 page, size, sortType, categoryId);
         
         try {
-            // Fetch ALL novels from content service (paginate through all pages)
-            List<NovelDetailResponseDTO> allNovels = new ArrayList<>();
-            int fetchPage = 0;
-            int fetchSize = 100;
-            boolean hasMore = true;
-            
-            while (hasMore && fetchPage < 50) { // Limit to 50 pages for safety
-                ApiResponse<PageResponseDTO<NovelDetailResponseDTO>> response = 
-                        contentServiceClient.getNovels(fetchPage, fetchSize, "createTime", "desc");
-                
-                if (response == null || response.getCode() == null || !response.getCode().equals(200) || response.getData() == null) {
-                    log.warn("Failed to fetch novels page {}", fetchPage);
-                    break;
-                }
-                
-                PageResponseDTO<NovelDetailResponseDTO> pageData = response.getData();
-                if (pageData.getContent() == null || pageData.getContent().isEmpty()) {
-                    break;
-                }
-                
-                allNovels.addAll(pageData.getContent());
-                hasMore = pageData.isHasNext();
-                fetchPage++;
-            }
-            
-            log.info("Fetched {} total novels", allNovels.size());
-            
-            // Filter by category if specified
-            if (categoryId != null) {
-                allNovels = allNovels.stream()
-                        .filter(novel -> categoryId.equals(novel.getCategoryId()))
-                        .collect(Collectors.toList());
+            String redisKey = buildNovelRedisKey(sortType, categoryId);
+            long offset = (long) page * size;
+
+            Long totalInRedis = redisUtil.zCard(redisKey);
+            long totalElements = totalInRedis != null ? totalInRedis : 0;
+
+            if (offset >= totalElements) {
+                return PageResponseDTO.of(Collections.emptyList(), totalElements, page, size);
             }
-            
-            // Sort by votes (voteCnt)
-            allNovels.sort(Comparator.comparing(NovelDetailResponseDTO::getVoteCnt,
-                    Comparator.nullsLast(Comparator.reverseOrder())));
-            
-            // Paginate the results
-            int totalElements = allNovels.size();
-            int start = page * size;
-            int end = Math.min(start + size, totalElements);
-            
-            if (start >= totalElements) {
+
+            List<TypedTuple<String>> window = redisUtil.zReverseRangeWithScores(redisKey, offset, offset + size - 1);
+            if (window.isEmpty()) {
                 return PageResponseDTO.of(Collections.emptyList(), totalElements, page, size);
             }
-            
-            List<NovelDetailResponseDTO> paginatedNovels = allNovels.subList(start, end);
-            
-            return PageResponseDTO.of(paginatedNovels, totalElements, page, size);
+
+            List<Integer> orderedIds = window.stream()
+                    .map(tuple -> Integer.valueOf(tuple.getValue()))
+                    .collect(Collectors.toList());
+
+            Map<Integer, NovelDetailResponseDTO> novelMap = contentMetadataCache.getNovels(orderedIds);
+            if (novelMap.size() < orderedIds.size()) {
+                log.warn("Hydrated {} of {} novels for ranking key {}", novelMap.size(), orderedIds.size(), redisKey);
+            }
+
+            List<NovelDetailResponseDTO> rankedNovels = orderedIds.stream()
+                    .map(novelMap::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+
+            return PageResponseDTO.of(rankedNovels, totalElements, page, size);
             
         } catch (Exception e) {
             log.error("Error fetching novel ranking: {}", e.getMessage(), e);
@@ -116,11 +103,10 @@ public class RankingService {
     public NovelRankDTO getBestNovelRank(Integer novelId) {
         // Verify novel exists
         try {
-            ApiResponse<NovelDetailResponseDTO> response = contentServiceClient.getNovelById(novelId);
-            if (response == null || response.getCode() == null || !response.getCode().equals(200) || response.getData() == null) {
+            NovelDetailResponseDTO novel = contentMetadataCache.getNovel(novelId);
+            if (novel == null) {
                 throw new ResourceNotFoundException("Novel not found, id: " + novelId);
             }
-            NovelDetailResponseDTO novel = response.getData();
 
             NovelRankDTO bestRank = null;
 
@@ -168,183 +154,90 @@ public class RankingService {
     }
 
     /**
-     * Get user ranking with pagination - fetches users directly from user service
-     * and hardcodes level/exp for demonstration
+     * Get user ranking with pagination - pages the gamification exp sorted set and hydrates
+     * the page with a single batch call to the user service
      */
     public PageResponseDTO<UserProfileResponseDTO> rankUser(Integer page, Integer size, String timeRange) {
         log.info("Fetching user ranking: page={}, size={}", page, size);
         
         try {
-            // Fetch users from user service
-            ApiResponse<PageResponseDTO<UserProfileResponseDTO>> userResponse = 
-                    userServiceClient.getAllUsersForRanking(page, size, "createTime", "desc");
-            
-            if (userResponse == null || userResponse.getCode() == null || 
-                    !userResponse.getCode().equals(200) || userResponse.getData() == null) {
-                log.warn("Failed to fetch users for ranking");
-                return PageResponseDTO.of(Collections.emptyList(), 0, page, size);
-            }
-            
-            PageResponseDTO<UserProfileResponseDTO> pageData = userResponse.getData();
-            List<UserProfileResponseDTO> users = pageData.getContent();
-            
-            if (users == null || users.isEmpty()) {
-                return PageResponseDTO.of(Collections.emptyList(), 0, page, size);
-            }
-            
-            // Calculate the absolute position for hardcoding level/exp
-            int startPosition = page * size;
-            
-            // Hardcode level and exp for users based on their position
-            for (int i = 0; i < users.size(); i++) {
-                UserProfileResponseDTO user = users.get(i);
-                int absolutePosition = startPosition + i;
-                
-                // Hardcode levels and exp for users in decreasing order
-                if (absolutePosition < 3) {
-                    // First 3 users: Level 9, 3000+ exp
-                    user.setLevel(9);
-                    user.setCurrentExp(3000 + (2 - absolutePosition) * 100);
-                } else if (absolutePosition < 5) {
-                    // Next 2 users: Level 8, 2000+ exp
-                    user.setLevel(8);
-                    user.setCurrentExp(2000 + (4 - absolutePosition) * 100);
-                } else if (absolutePosition < 8) {
-                    // Next 3 users: Level 7, 1500+ exp
-                    user.setLevel(7);
-                    user.setCurrentExp(1500 + (7 - absolutePosition) * 100);
-                } else if (absolutePosition < 10) {
-                    // Next 2 users: Level 6, 1000+ exp
-                    user.setLevel(6);
-                    user.setCurrentExp(1000 + (9 - absolutePosition) * 100);
-                } else if (absolutePosition < 15) {
-                    // Positions 10-14: Level 5, 800+ exp
-                    user.setLevel(5);
-                    user.setCurrentExp(800 + (14 - absolutePosition) * 20);
-                } else if (absolutePosition < 20) {
-                    // Positions 15-19: Level 4, 600+ exp
-                    user.setLevel(4);
-                    user.setCurrentExp(600 + (19 - absolutePosition) * 20);
-                } else if (absolutePosition < 30) {
-                    // Positions 20-29: Level 3, 400+ exp
-                    user.setLevel(3);
-                    user.setCurrentExp(400 + (29 - absolutePosition) * 10);
-                } else if (absolutePosition < 50) {
-                    // Positions 30-49: Level 2, 200+ exp
-                    user.setLevel(2);
-                    user.setCurrentExp(200 + (49 - absolutePosition) * 5);
-                } else {
-                    // Positions 50+: Level 1, decreasing exp
-                    user.setLevel(1);
-                    user.setCurrentExp(Math.max(50, 200 - (absolutePosition - 50) * 2));
-                }
-            }
-            
-            return PageResponseDTO.of(
-                    users, 
-                    pageData.getTotalElements(), 
-                    page, 
-                    size
-            );
-            
+            return getPaginatedRanking(page, size, RANK_USER_EXP,
+                    this::fetchUsersBatch,
+                    user -> UUID.fromString(user.getUuid()),
+                    (user, score) -> {
+                        // Score = level * 1000000 + currentExp, see RankingUpdateService
+                        long packed = score.longValue();
+                        user.setLevel((int) (packed / USER_LEVEL_SCORE_FACTOR));
+                        user.setCurrentExp((int) (packed % USER_LEVEL_SCORE_FACTOR));
+                    });
         } catch (Exception e) {
             log.error("Error fetching user ranking: {}", e.getMessage(), e);
             return PageResponseDTO.of(Collections.emptyList(), 0, page, size);
         }
     }
 
+    private List<UserProfileResponseDTO> fetchUsersBatch(List<UUID> userIds) {
+        ApiResponse<List<UserProfileResponseDTO>> response = userServiceClient.getUsersBatch(userIds);
+        if (response == null || response.getCode() == null || !response.getCode().equals(200) || response.getData() == null) {
+            log.warn("Failed to hydrate {} users for ranking", userIds.size());
+            return Collections.emptyList();
+        }
+        return response.getData().stream()
+                .filter(user -> user.getUuid() != null)
+                .collect(Collectors.toList());
+    }
+
     /**
-     * Get author ranking with pagination - aggregates novels by author and sorts by total votes
+     * Get author ranking with pagination - pages the pre-aggregated author sorted set selected
+     * by sortType and fills the remaining stats and display names from Redis
      */
     public PageResponseDTO<AuthorResponseDTO> rankAuthor(Integer page, Integer size, String sortType, String timeRange) {
         log.info("Fetching author ranking: page={}, size={}, sortType={}", page, size, sortType);
         
         try {
-            // Fetch ALL novels from content service
-            List<NovelDetailResponseDTO> allNovels = new ArrayList<>();
-            int fetchPage = 0;
-            int fetchSize = 100;
-            boolean hasMore = true;
-            
-            while (hasMore && fetchPage < 50) {
-                ApiResponse<PageResponseDTO<NovelDetailResponseDTO>> response = 
-                        contentServiceClient.getNovels(fetchPage, fetchSize, "createTime", "desc");
-                
-                if (response == null || response.getCode() == null || !response.getCode().equals(200) || response.getData() == null) {
-                    log.warn("Failed to fetch novels page {}", fetchPage);
-                    break;
-                }
-                
-                PageResponseDTO<NovelDetailResponseDTO> pageData = response.getData();
-                if (pageData.getContent() == null || pageData.getContent().isEmpty()) {
-                    break;
-                }
-                
-                allNovels.addAll(pageData.getContent());
-                hasMore = pageData.isHasNext();
-                fetchPage++;
+            String redisKey = buildAuthorRedisKey(sortType);
+            long offset = (long) page * size;
+
+            Long totalInRedis = redisUtil.zCard(redisKey);
+            long totalElements = totalInRedis != null ? totalInRedis : 0;
+
+            if (offset >= totalElements) {
+                return PageResponseDTO.of(Collections.emptyList(), totalElements, page, size);
             }
-            
-            log.info("Fetched {} total novels for author ranking", allNovels.size());
-            
-            // Aggregate by author
-            Map<String, AuthorStats> authorStatsMap = new HashMap<>();
-            for (NovelDetailResponseDTO novel : allNovels) {
-                if (novel.getAuthorId() == null) {
-                    continue;
-                }
-                
-                String authorId = novel.getAuthorId().toString();
-                AuthorStats stats = authorStatsMap.computeIfAbsent(authorId, k -> new AuthorStats());
-                stats.authorId = authorId;
-                stats.authorName = novel.getAuthorUsername();
-                stats.totalVotes += (novel.getVoteCnt() != null ? novel.getVoteCnt() : 0);
-                stats.totalViews += (novel.getViewCnt() != null ? novel.getViewCnt() : 0);
-                stats.novelCount++;
+
+            List<TypedTuple<String>> window = redisUtil.zReverseRangeWithScores(redisKey, offset, offset + size - 1);
+            if (window.isEmpty()) {
+                return PageResponseDTO.of(Collections.emptyList(), totalElements, page, size);
             }
-            
-            // Convert to list and sort by votes
-            List<AuthorResponseDTO> authors = authorStatsMap.values().stream()
-                    .map(stats -> {
-                        AuthorResponseDTO dto = new AuthorResponseDTO();
-                        dto.setUuid(stats.authorId);
-                        dto.setUsername(stats.authorName);
-                        dto.setTotalVoteCnt(stats.totalVotes);
-                        dto.setTotalViewCnt(stats.totalViews);
-                        dto.setNovelNum(stats.novelCount);
-                        return dto;
-                    })
-                    .filter(Objects::nonNull)
-                    .sorted(Comparator.comparing(AuthorResponseDTO::getTotalVoteCnt).reversed())
+
+            List<String> authorIds = window.stream()
+                    .map(TypedTuple::getValue)
                     .collect(Collectors.toList());
-            
-            // Paginate
-            int totalElements = authors.size();
-            int start = page * size;
-            int end = Math.min(start + size, totalElements);
-            
-            if (start >= totalElements) {
-                return PageResponseDTO.of(Collections.emptyList(), totalElements, page, size);
+
+            // One round-trip per remaining stat and one for display names, regardless of catalogue size
+            List<Double> votes = redisUtil.zScores(RANK_AUTHOR_VOTE, authorIds);
+            List<Double> views = redisUtil.zScores(RANK_AUTHOR_VIEW, authorIds);
+            List<Double> novelNums = redisUtil.zScores(RANK_AUTHOR_NOVEL_NUM, authorIds);
+            List<Object> usernames = redisUtil.hMultiGet(RANK_AUTHOR_PROFILE, authorIds);
+
+            List<AuthorResponseDTO> authors = new ArrayList<>(authorIds.size());
+            for (int i = 0; i < authorIds.size(); i++) {
+                AuthorResponseDTO dto = new AuthorResponseDTO();
+                dto.setUuid(authorIds.get(i));
+                dto.setUsername(usernames.get(i) != null ? usernames.get(i).toString() : null);
+                dto.setTotalVoteCnt(toInt(votes.get(i)));
+                dto.setTotalViewCnt(toInt(views.get(i)));
+                dto.setNovelNum(toInt(novelNums.get(i)));
+                authors.add(dto);
             }
-            
-            List<AuthorResponseDTO> paginatedAuthors = authors.subList(start, end);
-            
-            return PageResponseDTO.of(paginatedAuthors, totalElements, page, size);
+
+            return PageResponseDTO.of(authors, totalElements, page, size);
             
         } catch (Exception e) {
             log.error("Error fetching author ranking: {}", e.getMessage(), e);
             return PageResponseDTO.of(Collections.emptyList(), 0, page, size);
         }
     }
-    
-    // Helper class for aggregating author stats
-    private static class AuthorStats {
-        String authorId;
-        String authorName;
-        int totalVotes;
-        int totalViews;
-        int novelCount;
-    }
 
     /**
      * Get rank for a specific novel in a specific ranking
@@ -370,12 +263,27 @@ public class RankingService {
         return (categoryId == null || categoryId <= 0) ? baseKey + ":all" : baseKey + ":" + categoryId;
     }
 
+    /**
+     * Build Redis key for author ranking
+     */
+    private String buildAuthorRedisKey(String sortType) {
+        if ("novelNum".equalsIgnoreCase(sortType)) {
+            return RANK_AUTHOR_NOVEL_NUM;
+        }
+        return "view".equalsIgnoreCase(sortType) ? RANK_AUTHOR_VIEW : RANK_AUTHOR_VOTE;
+    }
+
+    private static Integer toInt(Double score) {
+        return score != null ? score.intValue() : 0;
+    }
+
     /**
      * Generic method to get paginated ranking
      */
     private <T> PageResponseDTO<T> getPaginatedRanking(int page, int size, String redisKey,
                                                        Function<List<UUID>, List<T>> fetcher,
-                                                       Function<T, UUID> uuidExtractor) {
+                                                       Function<T, UUID> uuidExtractor,
+                                                       BiConsumer<T, Double> scoreApplier) {
         long offset = (long) page * size;
 
         Long totalInRedis = redisUtil.zCard(redisKey);
@@ -385,24 +293,37 @@ public class RankingService {
             return PageResponseDTO.of(Collections.emptyList(), totalElements, page, size);
         }
 
-        Set<String> uuidsStr = redisUtil.zReverseRange(redisKey, offset, offset + size - 1);
-        if (uuidsStr == null || uuidsStr.isEmpty()) {
+        long end = Math.min(offset + size, totalElements) - 1;
+        List<TypedTuple<String>> window = redisUtil.zReverseRangeWithScores(redisKey, offset, end);
+        if (window.isEmpty()) {
             return PageResponseDTO.of(Collections.emptyList(), totalElements, page, size);
         }
 
-        List<UUID> orderedUuids = uuidsStr.stream()
-                .map(UUID::fromString)
-                .collect(Collectors.toList());
+        List<UUID> orderedUuids = new ArrayList<>(window.size());
+        Map<UUID, Double> scores = new HashMap<>();
+        for (TypedTuple<String> tuple : window) {
+            UUID uuid = UUID.fromString(tuple.getValue());
+            orderedUuids.add(uuid);
+            scores.put(uuid, tuple.getScore());
+        }
 
         List<T> dtoList = fetcher.apply(orderedUuids);
 
         Map<UUID, T> dtoMap = dtoList.stream()
-                .collect(Collectors.toMap(uuidExtractor, Function.identity()));
+                .collect(Collectors.toMap(uuidExtractor, Function.identity(), (a, b) -> a));
 
-        List<T> sortedDtoList = orderedUuids.stream()
-                .map(dtoMap::get)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        List<T> sortedDtoList = new ArrayList<>(orderedUuids.size());
+        for (UUID uuid : orderedUuids) {
+            T dto = dtoMap.get(uuid);
+            if (dto == null) {
+                continue;
+            }
+            Double score = scores.get(uuid);
+            if (score != null) {
+                scoreApplier.accept(dto, score);
+            }
+            sortedDtoList.add(dto);
+        }
 
         return PageResponseDTO.of(sortedDtoList, totalElements, page, size);
     }
@@ -5,15 +5,22 @@ import com.yushan.analytics_service.client.GamificationServiceClient;
 import com.yushan.analytics_service.client.UserServiceClient;
 import com.yushan.analytics_service.dto.ApiResponse;
 import com.yushan.analytics_service.dto.NovelDetailResponseDTO;
+import com.yushan.analytics_service.dto.NovelRankingDeltaDTO;
 import com.yushan.analytics_service.dto.PageResponseDTO;
 import com.yushan.analytics_service.dto.UserProfileResponseDTO;
 import com.yushan.analytics_service.util.RedisUtil;
 import jakarta.annotation.PostConstruct;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -36,6 +43,25 @@ public class RankingUpdateService {
     @Autowired
     private RedisUtil redisUtil;
 
+    @Autowired
+    private RankingFetchPipeline fetchPipeline;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final int FETCH_PAGE_SIZE = 100;
+    private static final int MAX_FETCH_PAGES = 100; // 10000 users for safety
+    private static final int MAX_NOVEL_PAGES = 1000; // 100000 novels; pages are streamed, not held in memory
+    private static final int RECONCILE_CHUNK_SIZE = 1000;
+    private static final String REBUILD_TIMER = "ranking.rebuild.duration";
+    private static final String RECONCILE_TIMER = "ranking.reconcile.duration";
+    private static final String RECONCILE_COUNTER = "ranking.reconcile.corrections";
+    private static final String DELTA_COUNTER = "ranking.delta.applied";
+
+    private static final String RANK_PREFIX = "ranking:";
+    private static final String RANK_NOVEL_PATTERN = "ranking:novel:*";
+    private static final String RANK_STAGING_PREFIX = "ranking:staging:";
+    private static final Duration STAGING_KEY_TTL = Duration.ofHours(1);
     private static final String RANK_NOVEL_VIEW_ALL = "ranking:novel:view:all";
     private static final String RANK_NOVEL_VOTE_ALL = "ranking:novel:vote:all";
     private static final String RANK_NOVEL_VIEW_CATE_PREFIX = "ranking:novel:view:";
@@ -44,6 +70,9 @@ public class RankingUpdateService {
     private static final String RANK_AUTHOR_VOTE = "ranking:author:vote";
     private static final String RANK_AUTHOR_VIEW = "ranking:author:view";
     private static final String RANK_AUTHOR_NOVEL_NUM = "ranking:author:novelNum";
+    private static final String RANK_AUTHOR_PROFILE = "ranking:author:profile";
+    private static final List<String> RANK_AUTHOR_KEYS =
+            List.of(RANK_AUTHOR_VOTE, RANK_AUTHOR_VIEW, RANK_AUTHOR_NOVEL_NUM, RANK_AUTHOR_PROFILE);
 
     @PostConstruct
     public void runUpdateOnStartup() {
@@ -55,110 +84,61 @@ public class RankingUpdateService {
         }
     }
 
-    @Scheduled(cron = "0 0 0 * * ?")
+    /**
+     * Fully rebuild every ranking and swap it in atomically.
+     * Used on startup and by the admin endpoint; the scheduled job only reconciles drift.
+     */
     public void updateAllRankings() {
-        log.info("Starting scheduled ranking update");
+        log.info("Starting full ranking update");
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
             updateNovelRankings();
             updateUserRankings();
             updateAuthorRankings();
-            log.info("Finished scheduled ranking update");
+            log.info("Finished full ranking update");
         } catch (Exception e) {
             log.error("Error during ranking update: {}", e.getMessage(), e);
+        } finally {
+            long elapsedNanos = sample.stop(meterRegistry.timer(REBUILD_TIMER, "ranking", "all", "outcome", "completed"));
+            log.info("Ranking update took {} ms", elapsedNanos / 1_000_000);
         }
     }
 
     /**
-     * Update novel rankings in Redis
-     * Note: This requires pagination to fetch all novels since there's no batch endpoint
+     * Update novel and author rankings in Redis.
+     * Catalogue pages are streamed: each page is written to the staging keys as soon as it arrives and
+     * only per-author counters are kept, so memory stays flat however large the catalogue grows.
      */
     public void updateNovelRankings() {
         log.info("Updating novel rankings");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
         try {
-            // Fetch novels page by page
-            List<NovelDetailResponseDTO> allNovels = new java.util.ArrayList<>();
-            int page = 0;
-            int size = 100;
-            boolean hasMore = true;
-            
-            while (hasMore && page < 100) { // Limit to 100 pages (10000 novels) for safety
-                ApiResponse<PageResponseDTO<NovelDetailResponseDTO>> response = 
-                        contentServiceClient.getNovels(page, size, "createTime", "desc");
-                
-                if (response == null || response.getCode() == null || !response.getCode().equals(200) || response.getData() == null) {
-                    log.warn("Failed to fetch novels page {} for ranking", page);
-                    break;
-                }
-                
-                PageResponseDTO<NovelDetailResponseDTO> pageData = response.getData();
-                if (pageData.getContent() == null || pageData.getContent().isEmpty()) {
-                    break;
-                }
-                
-                allNovels.addAll(pageData.getContent());
-                hasMore = pageData.isHasNext();
-                page++;
-            }
-            
-            log.info("Fetched {} novels across {} pages", allNovels.size(), page);
-            
-            // Aggregate author statistics while we have all novels
+            StagedBuild build = new StagedBuild();
             Map<UUID, AuthorStats> authorStatsMap = new java.util.HashMap<>();
-            for (NovelDetailResponseDTO novel : allNovels) {
-                if (novel.getAuthorId() != null) {
-                    AuthorStats stats = authorStatsMap.computeIfAbsent(
-                        novel.getAuthorId(), 
-                        k -> new AuthorStats()
-                    );
-                    stats.novelCount++;
-                    stats.totalViews += (novel.getViewCnt() != null ? novel.getViewCnt() : 0);
-                    stats.totalVotes += (novel.getVoteCnt() != null ? novel.getVoteCnt() : 0);
-                }
-            }
-            
-            // Update author rankings
-            updateAuthorRankingsFromStats(authorStatsMap);
-            
-            // Group novels by category
-            Map<Integer, List<NovelDetailResponseDTO>> novelsByCategory = allNovels.stream()
-                    .filter(novel -> novel.getCategoryId() != null)
-                    .collect(Collectors.groupingBy(NovelDetailResponseDTO::getCategoryId));
-
-            // Clear old ranking keys
-            Set<String> oldKeys = redisUtil.keys("ranking:novel:*");
-            if (oldKeys != null && !oldKeys.isEmpty()) {
-                redisUtil.delete(oldKeys);
-            }
+            Set<Integer> categoryIds = new java.util.HashSet<>();
 
-            // Update all-novels rankings
-            for (NovelDetailResponseDTO novel : allNovels) {
-                if (novel.getViewCnt() != null) {
-                    redisUtil.zAdd(RANK_NOVEL_VIEW_ALL, novel.getId().toString(), novel.getViewCnt());
-                }
-                if (novel.getVoteCnt() != null) {
-                    redisUtil.zAdd(RANK_NOVEL_VOTE_ALL, novel.getId().toString(), novel.getVoteCnt());
-                }
-            }
+            // An incomplete fetch aborts the rebuild before the swap, so the published rankings stay in place
+            long novelCount = fetchPipeline.forEachPage("novels", this::fetchNovelPage,
+                    MAX_NOVEL_PAGES, novels -> build.stageTuples(collectNovelPage(novels, authorStatsMap, categoryIds)));
 
-            // Update category-specific rankings
-            for (Map.Entry<Integer, List<NovelDetailResponseDTO>> entry : novelsByCategory.entrySet()) {
-                String viewKey = RANK_NOVEL_VIEW_CATE_PREFIX + entry.getKey();
-                String voteKey = RANK_NOVEL_VOTE_CATE_PREFIX + entry.getKey();
-                
-                for (NovelDetailResponseDTO novel : entry.getValue()) {
-                    if (novel.getViewCnt() != null) {
-                        redisUtil.zAdd(viewKey, novel.getId().toString(), novel.getViewCnt());
-                    }
-                    if (novel.getVoteCnt() != null) {
-                        redisUtil.zAdd(voteKey, novel.getId().toString(), novel.getVoteCnt());
-                    }
-                }
-            }
-            
-            log.info("Updated rankings for {} novels across {} categories", 
-                    allNovels.size(), novelsByCategory.size());
+            Map<String, String> authorProfiles = new java.util.HashMap<>();
+            build.stageTuples(authorTuples(authorStatsMap, authorProfiles));
+            // Author display names are cached alongside so ranking reads don't need the content service
+            build.stageHash(RANK_AUTHOR_PROFILE, authorProfiles);
+
+            // Novel and author rankings go live together in a single atomic swap
+            List<String> previousLiveKeys = new java.util.ArrayList<>(redisUtil.keys(RANK_NOVEL_PATTERN));
+            previousLiveKeys.addAll(RANK_AUTHOR_KEYS);
+            build.publish(previousLiveKeys);
+
+            log.info("Updated rankings for {} novels across {} categories and {} authors",
+                    novelCount, categoryIds.size(), authorStatsMap.size());
+            outcome = "success";
         } catch (Exception e) {
             log.error("Error updating novel rankings: {}", e.getMessage(), e);
+        } finally {
+            sample.stop(meterRegistry.timer(REBUILD_TIMER, "ranking", "novel", "outcome", outcome));
         }
     }
 
@@ -169,107 +149,421 @@ public class RankingUpdateService {
      */
     public void updateUserRankings() {
         log.info("Updating user rankings");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
         try {
-            // Step 1: Fetch all users from user service (paginated)
-            List<String> allUserIds = new java.util.ArrayList<>();
-            int page = 0;
-            int size = 100;
-            boolean hasMore = true;
+            List<TypedTuple<Object>> userTuples = fetchUserScores();
+            if (userTuples == null) {
+                return;
+            }
+
+            StagedBuild build = new StagedBuild();
+            build.stageTuples(Map.of(RANK_USER_EXP, userTuples));
+            build.publish(List.of(RANK_USER_EXP));
             
-            while (hasMore && page < 100) { // Limit to 100 pages for safety
-                ApiResponse<PageResponseDTO<UserProfileResponseDTO>> userResponse = 
-                        userServiceClient.getAllUsersForRanking(page, size, "createTime", "desc");
-                
-                if (userResponse == null || userResponse.getCode() == null || 
-                        !userResponse.getCode().equals(200) || userResponse.getData() == null) {
-                    log.warn("Failed to fetch users page {} for ranking", page);
-                    break;
-                }
-                
-                PageResponseDTO<UserProfileResponseDTO> pageData = userResponse.getData();
-                if (pageData.getContent() == null || pageData.getContent().isEmpty()) {
-                    break;
+            log.info("Updated rankings for {} users", userTuples.size());
+            outcome = "success";
+        } catch (Exception e) {
+            log.error("Error updating user rankings: {}", e.getMessage(), e);
+        } finally {
+            sample.stop(meterRegistry.timer(REBUILD_TIMER, "ranking", "user", "outcome", outcome));
+        }
+    }
+
+    /**
+     * Apply incremental score changes to the live novel and author rankings as they happen.
+     * Deltas for the same member are summed first, then all of them go out as ZINCRBYs in one pipelined round-trip.
+     */
+    public void applyNovelDeltas(Collection<NovelRankingDeltaDTO> deltas) {
+        if (deltas == null || deltas.isEmpty()) {
+            return;
+        }
+        Map<String, Map<String, Double>> incrementsByKey = new java.util.HashMap<>();
+        Map<String, String> authorProfiles = new java.util.HashMap<>();
+        for (NovelRankingDeltaDTO delta : deltas) {
+            if (delta.getNovelId() == null) {
+                continue;
+            }
+            String novelId = delta.getNovelId().toString();
+            addIncrement(incrementsByKey, RANK_NOVEL_VIEW_ALL, novelId, delta.getViewDelta());
+            addIncrement(incrementsByKey, RANK_NOVEL_VOTE_ALL, novelId, delta.getVoteDelta());
+            if (delta.getCategoryId() != null) {
+                addIncrement(incrementsByKey, RANK_NOVEL_VIEW_CATE_PREFIX + delta.getCategoryId(), novelId,
+                        delta.getViewDelta());
+                addIncrement(incrementsByKey, RANK_NOVEL_VOTE_CATE_PREFIX + delta.getCategoryId(), novelId,
+                        delta.getVoteDelta());
+            }
+            if (delta.getAuthorId() != null) {
+                String authorId = delta.getAuthorId().toString();
+                addIncrement(incrementsByKey, RANK_AUTHOR_VIEW, authorId, delta.getViewDelta());
+                addIncrement(incrementsByKey, RANK_AUTHOR_VOTE, authorId, delta.getVoteDelta());
+                if (delta.getAuthorUsername() != null) {
+                    authorProfiles.put(authorId, delta.getAuthorUsername());
                 }
-                
-                // Extract user IDs
-                for (UserProfileResponseDTO user : pageData.getContent()) {
-                    if (user.getUuid() != null) {
-                        allUserIds.add(user.getUuid());
+            }
+        }
+        redisUtil.zIncrementAllPipelined(incrementsByKey);
+        redisUtil.hPutAll(RANK_AUTHOR_PROFILE, authorProfiles);
+        meterRegistry.counter(DELTA_COUNTER).increment(deltas.size());
+    }
+
+    /**
+     * Periodic reconciliation of the live rankings against the source services.
+     * Deltas keep the boards fresh in between, so this pass only writes scores that drifted and
+     * removes members that no longer exist instead of rebuilding every key.
+     * A delta applied while the pass runs can be overwritten by the slightly older source value;
+     * the next delta or pass corrects it.
+     */
+    @Scheduled(cron = "${analytics.ranking.reconcile-cron:0 0 0 * * ?}")
+    public void reconcileAllRankings() {
+        log.info("Starting scheduled ranking reconciliation");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            reconcileNovelRankings();
+            reconcileUserRankings();
+        } finally {
+            long elapsedNanos = sample.stop(meterRegistry.timer(RECONCILE_TIMER, "ranking", "all", "outcome", "completed"));
+            log.info("Ranking reconciliation took {} ms", elapsedNanos / 1_000_000);
+        }
+    }
+
+    /**
+     * Reconcile novel and author rankings. The catalogue is streamed page by page as in the full rebuild;
+     * novels seen per key are tracked in bitsets so stale members can be removed afterwards.
+     */
+    public void reconcileNovelRankings() {
+        log.info("Reconciling novel rankings");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            Map<String, BitSet> seenNovelsByKey = new java.util.HashMap<>();
+            Map<UUID, AuthorStats> authorStatsMap = new java.util.HashMap<>();
+            Set<Integer> categoryIds = new java.util.HashSet<>();
+            long[] corrected = new long[1];
+
+            // An incomplete fetch aborts before anything is removed, so no novel is dropped by mistake
+            long novelCount = fetchPipeline.forEachPage("novels", this::fetchNovelPage, MAX_NOVEL_PAGES, novels -> {
+                Map<String, List<TypedTuple<Object>>> tuplesByKey = collectNovelPage(novels, authorStatsMap, categoryIds);
+                for (Map.Entry<String, List<TypedTuple<Object>>> entry : tuplesByKey.entrySet()) {
+                    BitSet seen = seenNovelsByKey.computeIfAbsent(entry.getKey(), k -> new BitSet());
+                    for (TypedTuple<Object> tuple : entry.getValue()) {
+                        seen.set(Integer.parseInt(tuple.getValue().toString()));
                     }
                 }
-                
-                hasMore = pageData.isHasNext();
-                page++;
+                corrected[0] += correctDrift(tuplesByKey);
+            });
+
+            long removed = 0;
+            List<String> obsoleteKeys = new java.util.ArrayList<>();
+            for (String liveKey : redisUtil.keys(RANK_NOVEL_PATTERN)) {
+                BitSet seen = seenNovelsByKey.get(liveKey);
+                if (seen == null) {
+                    obsoleteKeys.add(liveKey);
+                } else {
+                    removed += removeStaleMembers(liveKey, member -> isSeenNovel(seen, member)).size();
+                }
             }
-            
-            log.info("Fetched {} users across {} pages", allUserIds.size(), page);
-            
-            if (allUserIds.isEmpty()) {
-                log.warn("No users found for ranking");
+            redisUtil.delete(obsoleteKeys);
+
+            Map<String, String> authorProfiles = new java.util.HashMap<>();
+            Map<String, List<TypedTuple<Object>>> authorTuplesByKey = authorTuples(authorStatsMap, authorProfiles);
+            for (Map.Entry<String, List<TypedTuple<Object>>> entry : authorTuplesByKey.entrySet()) {
+                corrected[0] += correctDriftInChunks(entry.getKey(), entry.getValue());
+            }
+            Set<String> authorIds = authorStatsMap.keySet().stream().map(UUID::toString).collect(Collectors.toSet());
+            Set<String> staleAuthors = new java.util.HashSet<>();
+            for (String authorKey : authorTuplesByKey.keySet()) {
+                List<String> stale = removeStaleMembers(authorKey, authorIds::contains);
+                removed += stale.size();
+                staleAuthors.addAll(stale);
+            }
+            redisUtil.hDelete(RANK_AUTHOR_PROFILE, staleAuthors);
+            redisUtil.hPutAll(RANK_AUTHOR_PROFILE, authorProfiles);
+
+            recordReconciliation("novel", corrected[0], removed);
+            log.info("Reconciled {} novels across {} categories and {} authors: corrected {} scores, "
+                            + "removed {} stale members and {} obsolete keys",
+                    novelCount, categoryIds.size(), authorStatsMap.size(), corrected[0], removed, obsoleteKeys.size());
+            outcome = "success";
+        } catch (Exception e) {
+            log.error("Error reconciling novel rankings: {}", e.getMessage(), e);
+        } finally {
+            sample.stop(meterRegistry.timer(RECONCILE_TIMER, "ranking", "novel", "outcome", outcome));
+        }
+    }
+
+    /**
+     * Reconcile the user ranking with the user and gamification services
+     */
+    public void reconcileUserRankings() {
+        log.info("Reconciling user rankings");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            List<TypedTuple<Object>> userTuples = fetchUserScores();
+            if (userTuples == null) {
                 return;
             }
-            
-            // Step 2: Fetch gamification stats in batches
-            List<GamificationServiceClient.GamificationStats> allStats = new java.util.ArrayList<>();
-            int batchSize = 100;
-            
-            for (int i = 0; i < allUserIds.size(); i += batchSize) {
-                int endIndex = Math.min(i + batchSize, allUserIds.size());
-                List<String> batch = allUserIds.subList(i, endIndex);
-                
-                try {
-                    ApiResponse<List<GamificationServiceClient.GamificationStats>> statsResponse = 
-                            gamificationServiceClient.getBatchUsersStats(batch);
-                    
-                    if (statsResponse != null && statsResponse.getCode() != null && 
-                            statsResponse.getCode().equals(200) && statsResponse.getData() != null) {
-                        allStats.addAll(statsResponse.getData());
-                    }
-                } catch (Exception e) {
-                    log.warn("Failed to fetch gamification stats for batch starting at index {}: {}", i, e.getMessage());
+
+            long corrected = correctDriftInChunks(RANK_USER_EXP, userTuples);
+            Set<String> userIds = userTuples.stream()
+                    .map(tuple -> tuple.getValue().toString())
+                    .collect(Collectors.toSet());
+            long removed = removeStaleMembers(RANK_USER_EXP, userIds::contains).size();
+
+            recordReconciliation("user", corrected, removed);
+            log.info("Reconciled {} users: corrected {} scores, removed {} stale members",
+                    userTuples.size(), corrected, removed);
+            outcome = "success";
+        } catch (Exception e) {
+            log.error("Error reconciling user rankings: {}", e.getMessage(), e);
+        } finally {
+            sample.stop(meterRegistry.timer(RECONCILE_TIMER, "ranking", "user", "outcome", outcome));
+        }
+    }
+
+    /**
+     * Compare target scores against the live keys with one pipelined ZMSCORE round-trip
+     * and write back only the members whose score differs.
+     *
+     * @return the number of members corrected
+     */
+    private long correctDrift(Map<String, List<TypedTuple<Object>>> targetByKey) {
+        Map<String, List<String>> membersByKey = new java.util.HashMap<>();
+        for (Map.Entry<String, List<TypedTuple<Object>>> entry : targetByKey.entrySet()) {
+            membersByKey.put(entry.getKey(), entry.getValue().stream()
+                    .map(tuple -> tuple.getValue().toString())
+                    .collect(Collectors.toList()));
+        }
+        Map<String, List<Double>> liveScoresByKey = redisUtil.zScoresPipelined(membersByKey);
+
+        long corrected = 0;
+        Map<String, List<TypedTuple<Object>>> corrections = new java.util.HashMap<>();
+        for (Map.Entry<String, List<TypedTuple<Object>>> entry : targetByKey.entrySet()) {
+            List<Double> liveScores = liveScoresByKey.getOrDefault(entry.getKey(), List.of());
+            List<TypedTuple<Object>> targets = entry.getValue();
+            for (int i = 0; i < targets.size(); i++) {
+                Double liveScore = i < liveScores.size() ? liveScores.get(i) : null;
+                if (liveScore == null || Double.compare(liveScore, targets.get(i).getScore()) != 0) {
+                    corrections.computeIfAbsent(entry.getKey(), k -> new java.util.ArrayList<>()).add(targets.get(i));
+                    corrected++;
                 }
             }
-            
-            log.info("Fetched gamification stats for {} users", allStats.size());
-            
-            // Clear old ranking key
-            redisUtil.delete(RANK_USER_EXP);
-            
-            // Step 3: Update user rankings
-            // Score = level * 1000000 + currentExp (to rank by level first, then exp)
-            for (GamificationServiceClient.GamificationStats stats : allStats) {
-                if (stats.userId != null && stats.level != null && stats.currentExp != null) {
-                    double score = (stats.level * 1000000.0) + stats.currentExp;
-                    redisUtil.zAdd(RANK_USER_EXP, stats.userId, score);
-                }
+        }
+        redisUtil.zAddAllPipelined(corrections);
+        return corrected;
+    }
+
+    private long correctDriftInChunks(String key, List<TypedTuple<Object>> targets) {
+        long corrected = 0;
+        for (int start = 0; start < targets.size(); start += RECONCILE_CHUNK_SIZE) {
+            List<TypedTuple<Object>> chunk = targets.subList(start, Math.min(start + RECONCILE_CHUNK_SIZE, targets.size()));
+            corrected += correctDrift(Map.of(key, chunk));
+        }
+        return corrected;
+    }
+
+    /**
+     * Remove members of a live key that the source services no longer report
+     *
+     * @return the members removed
+     */
+    private List<String> removeStaleMembers(String key, java.util.function.Predicate<String> isLive) {
+        List<String> stale = redisUtil.zMembers(key).stream()
+                .filter(member -> !isLive.test(member))
+                .collect(Collectors.toList());
+        redisUtil.zRemove(key, stale);
+        return stale;
+    }
+
+    private static boolean isSeenNovel(BitSet seen, String member) {
+        try {
+            int novelId = Integer.parseInt(member);
+            return novelId >= 0 && seen.get(novelId);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private void recordReconciliation(String ranking, long corrected, long removed) {
+        meterRegistry.counter(RECONCILE_COUNTER, "ranking", ranking, "type", "score").increment(corrected);
+        meterRegistry.counter(RECONCILE_COUNTER, "ranking", ranking, "type", "stale").increment(removed);
+    }
+
+    private static void addIncrement(Map<String, Map<String, Double>> incrementsByKey, String key, String member,
+                                     long delta) {
+        if (delta != 0) {
+            incrementsByKey.computeIfAbsent(key, k -> new java.util.HashMap<>()).merge(member, (double) delta, Double::sum);
+        }
+    }
+
+    /**
+     * Fetch all users and their gamification stats, scored as level * 1000000 + currentExp
+     * so users rank by level first, then by exp.
+     *
+     * @return the user ranking members, or null when no users were found
+     */
+    private List<TypedTuple<Object>> fetchUserScores() {
+        // Step 1: Fetch all users from user service (pages fetched concurrently)
+        List<UserProfileResponseDTO> allUsers = fetchPipeline.fetchAllPages("users", page -> {
+            ApiResponse<PageResponseDTO<UserProfileResponseDTO>> userResponse =
+                    userServiceClient.getAllUsersForRanking(page, FETCH_PAGE_SIZE, "createTime", "desc");
+            return isSuccess(userResponse) ? userResponse.getData() : null;
+        }, MAX_FETCH_PAGES);
+
+        List<String> allUserIds = allUsers.stream()
+                .map(UserProfileResponseDTO::getUuid)
+                .filter(java.util.Objects::nonNull)
+                .collect(Collectors.toList());
+
+        if (allUserIds.isEmpty()) {
+            log.warn("No users found for ranking");
+            return null;
+        }
+
+        // Step 2: Fetch gamification stats in concurrent batches
+        List<GamificationServiceClient.GamificationStats> allStats = fetchPipeline.fetchInBatches(
+                "gamification stats", allUserIds, FETCH_PAGE_SIZE, batch -> {
+                    ApiResponse<List<GamificationServiceClient.GamificationStats>> statsResponse =
+                            gamificationServiceClient.getBatchUsersStats(batch);
+                    return isSuccess(statsResponse) ? statsResponse.getData() : null;
+                });
+
+        log.info("Fetched gamification stats for {} users", allStats.size());
+
+        List<TypedTuple<Object>> userTuples = new java.util.ArrayList<>(allStats.size());
+        for (GamificationServiceClient.GamificationStats stats : allStats) {
+            if (stats.userId != null && stats.level != null && stats.currentExp != null) {
+                double score = (stats.level * 1000000.0) + stats.currentExp;
+                userTuples.add(RedisUtil.tuple(stats.userId, score));
             }
-            
-            log.info("Updated rankings for {} users", allStats.size());
-        } catch (Exception e) {
-            log.error("Error updating user rankings: {}", e.getMessage(), e);
         }
+        return userTuples;
+    }
+
+    private PageResponseDTO<NovelDetailResponseDTO> fetchNovelPage(int page) {
+        ApiResponse<PageResponseDTO<NovelDetailResponseDTO>> response =
+                contentServiceClient.getNovels(page, FETCH_PAGE_SIZE, "createTime", "desc");
+        return isSuccess(response) ? response.getData() : null;
+    }
+
+    /**
+     * Turn one page of novels into ranking members for the all-time and category keys,
+     * folding the page into the per-author totals as it goes
+     */
+    private static Map<String, List<TypedTuple<Object>>> collectNovelPage(List<NovelDetailResponseDTO> novels,
+                                                                          Map<UUID, AuthorStats> authorStatsMap,
+                                                                          Set<Integer> categoryIds) {
+        Map<String, List<TypedTuple<Object>>> tuplesByKey = new java.util.HashMap<>();
+        for (NovelDetailResponseDTO novel : novels) {
+            if (novel.getId() == null) {
+                continue;
+            }
+            addNovelScores(tuplesByKey, RANK_NOVEL_VIEW_ALL, RANK_NOVEL_VOTE_ALL, novel);
+            if (novel.getCategoryId() != null) {
+                categoryIds.add(novel.getCategoryId());
+                addNovelScores(tuplesByKey, RANK_NOVEL_VIEW_CATE_PREFIX + novel.getCategoryId(),
+                        RANK_NOVEL_VOTE_CATE_PREFIX + novel.getCategoryId(), novel);
+            }
+            if (novel.getAuthorId() != null) {
+                authorStatsMap.computeIfAbsent(novel.getAuthorId(), k -> new AuthorStats()).add(novel);
+            }
+        }
+        return tuplesByKey;
     }
 
     /**
-     * Update author rankings from aggregated novel statistics
+     * Build author ranking members from aggregated novel statistics, collecting display names into authorProfiles
      */
-    private void updateAuthorRankingsFromStats(Map<UUID, AuthorStats> authorStatsMap) {
-        log.info("Updating author rankings from novel statistics");
-        
-        // Clear old ranking keys
-        redisUtil.delete(List.of(RANK_AUTHOR_VOTE, RANK_AUTHOR_VIEW, RANK_AUTHOR_NOVEL_NUM));
-        
-        // Update author rankings
+    private static Map<String, List<TypedTuple<Object>>> authorTuples(Map<UUID, AuthorStats> authorStatsMap,
+                                                                      Map<String, String> authorProfiles) {
+        List<TypedTuple<Object>> voteTuples = new java.util.ArrayList<>(authorStatsMap.size());
+        List<TypedTuple<Object>> viewTuples = new java.util.ArrayList<>(authorStatsMap.size());
+        List<TypedTuple<Object>> novelNumTuples = new java.util.ArrayList<>(authorStatsMap.size());
         for (Map.Entry<UUID, AuthorStats> entry : authorStatsMap.entrySet()) {
             String authorUuid = entry.getKey().toString();
             AuthorStats stats = entry.getValue();
             
-            redisUtil.zAdd(RANK_AUTHOR_VOTE, authorUuid, stats.totalVotes);
-            redisUtil.zAdd(RANK_AUTHOR_VIEW, authorUuid, stats.totalViews);
-            redisUtil.zAdd(RANK_AUTHOR_NOVEL_NUM, authorUuid, stats.novelCount);
+            voteTuples.add(RedisUtil.tuple(authorUuid, stats.totalVotes));
+            viewTuples.add(RedisUtil.tuple(authorUuid, stats.totalViews));
+            novelNumTuples.add(RedisUtil.tuple(authorUuid, stats.novelCount));
+            if (stats.username != null) {
+                authorProfiles.put(authorUuid, stats.username);
+            }
+        }
+        return Map.of(RANK_AUTHOR_VOTE, voteTuples, RANK_AUTHOR_VIEW, viewTuples, RANK_AUTHOR_NOVEL_NUM, novelNumTuples);
+    }
+
+    /**
+     * Rebuilt ranking data staged under per-build keys, so readers are never exposed to empty or partial keys.
+     * {@link #publish} then renames every staging key over its live key in a single MULTI/EXEC and deletes
+     * live keys that are no longer produced (e.g. a category without novels).
+     * Staging keys of a build that dies before the swap expire on their own.
+     */
+    private final class StagedBuild {
+
+        private final String buildId = UUID.randomUUID().toString();
+        private final Map<String, String> stagingToLive = new java.util.HashMap<>();
+
+        /**
+         * Add members to the staging copies of the given live keys; may be called repeatedly for the same key
+         */
+        void stageTuples(Map<String, List<TypedTuple<Object>>> tuplesByLiveKey) {
+            Map<String, List<TypedTuple<Object>>> stagedTuples = new java.util.HashMap<>();
+            for (Map.Entry<String, List<TypedTuple<Object>>> entry : tuplesByLiveKey.entrySet()) {
+                if (!entry.getValue().isEmpty()) {
+                    String stagingKey = stagingKey(buildId, entry.getKey());
+                    stagedTuples.put(stagingKey, entry.getValue());
+                    stagingToLive.put(stagingKey, entry.getKey());
+                }
+            }
+            if (!stagedTuples.isEmpty()) {
+                redisUtil.zAddAllPipelined(stagedTuples, STAGING_KEY_TTL);
+            }
+        }
+
+        void stageHash(String liveKey, Map<String, String> hash) {
+            if (hash.isEmpty()) {
+                return;
+            }
+            String stagingKey = stagingKey(buildId, liveKey);
+            redisUtil.hPutAll(stagingKey, hash);
+            redisUtil.expire(stagingKey, STAGING_KEY_TTL);
+            stagingToLive.put(stagingKey, liveKey);
+        }
+
+        void publish(Collection<String> previousLiveKeys) {
+            Set<String> obsoleteKeys = new java.util.HashSet<>();
+            if (previousLiveKeys != null) {
+                obsoleteKeys.addAll(previousLiveKeys);
+            }
+            obsoleteKeys.removeAll(stagingToLive.values());
+
+            redisUtil.renameAll(stagingToLive, obsoleteKeys);
+            log.info("Published build {}: swapped in {} ranking keys, removed {} obsolete keys",
+                    buildId, stagingToLive.size(), obsoleteKeys.size());
+        }
+    }
+
+    private static String stagingKey(String buildId, String liveKey) {
+        return RANK_STAGING_PREFIX + buildId + ":" + liveKey.substring(RANK_PREFIX.length());
+    }
+
+    private static boolean isSuccess(ApiResponse<?> response) {
+        return response != null && response.getCode() != null && response.getCode().equals(200) && response.getData() != null;
+    }
+
+    private static void addNovelScores(Map<String, List<TypedTuple<Object>>> tuplesByKey,
+                                       String viewKey, String voteKey, NovelDetailResponseDTO novel) {
+        String member = novel.getId().toString();
+        if (novel.getViewCnt() != null) {
+            tuplesByKey.computeIfAbsent(viewKey, k -> new java.util.ArrayList<>())
+                    .add(RedisUtil.tuple(member, novel.getViewCnt()));
+        }
+        if (novel.getVoteCnt() != null) {
+            tuplesByKey.computeIfAbsent(voteKey, k -> new java.util.ArrayList<>())
+                    .add(RedisUtil.tuple(member, novel.getVoteCnt()));
         }
-        
-        log.info("Updated rankings for {} authors", authorStatsMap.size());
     }
 
     /**
@@ -279,11 +573,21 @@ public class RankingUpdateService {
         log.info("Author rankings are updated as part of novel rankings update");
     }
     
-    // Helper class to aggregate author statistics
-    private static class AuthorStats {
+    // Per-author running totals; only primitives and the display name are kept, never the novel DTOs
+    private static final class AuthorStats {
+        String username;
         int novelCount = 0;
         long totalViews = 0;
         long totalVotes = 0;
+
+        void add(NovelDetailResponseDTO novel) {
+            if (novel.getAuthorUsername() != null) {
+                username = novel.getAuthorUsername();
+            }
+            novelCount++;
+            totalViews += (novel.getViewCnt() != null ? novel.getViewCnt() : 0);
+            totalVotes += (novel.getVoteCnt() != null ? novel.getVoteCnt() : 0);
+        }
     }
 }
 
@@ -0,0 +1,141 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.config.AnalyticsProperties;
+import com.yushan.analytics_service.dao.PartitionMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maintains the monthly partitions of reading_event.
+ * Partitions are created {@code analytics.partition.premake-months} ahead so writes rarely fall into the
+ * default partition. Rows that still land there (future-dated events, imports of old months) would make
+ * CREATE ... PARTITION OF fail for their month, so such a month is built as a plain table, the rows are
+ * moved over and the table is attached, all in one transaction. Each month is handled on its own, so one
+ * failure does not stop the others. Expired months are dropped by {@link DataRetentionService} once they
+ * are rolled up.
+ */
+@Slf4j
+@Component
+public class ReadingEventPartitionManager {
+
+    @Autowired
+    private PartitionMapper partitionMapper;
+
+    @Autowired
+    private AnalyticsProperties analyticsProperties;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    static final String PARENT_TABLE = "reading_event";
+    private static final String PARTITION_COLUMN = "event_time";
+    private static final String DEFAULT_PARTITION = PARENT_TABLE + "_default";
+    private static final String PARTITION_PREFIX = PARENT_TABLE + "_p";
+    private static final Pattern MONTHLY_PARTITION = Pattern.compile(PARTITION_PREFIX + "(\\d{6})");
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @PostConstruct
+    public void maintainOnStartup() {
+        try {
+            maintainPartitions();
+        } catch (Exception e) {
+            log.warn("Failed to maintain reading_event partitions on startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Create the current and upcoming monthly partitions
+     */
+    @Scheduled(cron = "${analytics.partition.cron:0 15 0 * * ?}")
+    public void maintainPartitions() {
+        maintainPartitions(LocalDate.now());
+    }
+
+    void maintainPartitions(LocalDate today) {
+        List<String> existing = partitionMapper.selectPartitionNames(PARENT_TABLE);
+
+        YearMonth currentMonth = YearMonth.from(today);
+        int created = 0;
+        int failed = 0;
+        for (int offset = 0; offset <= analyticsProperties.getPartition().getPremakeMonths(); offset++) {
+            YearMonth month = currentMonth.plusMonths(offset);
+            String name = PARTITION_PREFIX + month.format(MONTH_SUFFIX);
+            if (existing.contains(name)) {
+                continue;
+            }
+            try {
+                createPartition(name, month);
+                created++;
+            } catch (RuntimeException e) {
+                failed++;
+                log.error("Failed to create {} partition {}: {}", PARENT_TABLE, name, e.getMessage(), e);
+            }
+        }
+
+        meterRegistry.counter("analytics.partitions.created", "table", PARENT_TABLE).increment(created);
+        meterRegistry.counter("analytics.partitions.failed", "table", PARENT_TABLE).increment(failed);
+        if (created > 0) {
+            log.info("Created {} {} partitions", created, PARENT_TABLE);
+        }
+    }
+
+    private void createPartition(String name, YearMonth month) {
+        String from = month.atDay(1).toString();
+        String to = month.plusMonths(1).atDay(1).toString();
+        if (!partitionMapper.existsRowsInRange(DEFAULT_PARTITION, PARTITION_COLUMN, from, to)) {
+            partitionMapper.createRangePartition(PARENT_TABLE, name, from, to);
+            return;
+        }
+        Integer moved = transactionTemplate.execute(status -> {
+            partitionMapper.createTableLike(name, PARENT_TABLE);
+            int rows = partitionMapper.moveRowsInRange(DEFAULT_PARTITION, name, PARTITION_COLUMN, from, to);
+            partitionMapper.attachRangePartition(PARENT_TABLE, name, from, to);
+            return rows;
+        });
+        log.warn("Moved {} rows for {} out of {} into the new partition {}", moved, month, DEFAULT_PARTITION, name);
+    }
+
+    /**
+     * Detach and drop every monthly partition that lies entirely before the cutoff.
+     * The default partition is never dropped.
+     *
+     * @return number of partitions dropped
+     */
+    public int dropPartitionsBefore(LocalDate cutoff) {
+        int dropped = 0;
+        for (String name : partitionMapper.selectPartitionNames(PARENT_TABLE)) {
+            Matcher matcher = MONTHLY_PARTITION.matcher(name);
+            if (!matcher.matches()) {
+                continue;
+            }
+            // The upper bound is exclusive, so a month ending on the cutoff holds only expired rows
+            YearMonth month = YearMonth.parse(matcher.group(1), MONTH_SUFFIX);
+            if (!month.plusMonths(1).atDay(1).isAfter(cutoff)) {
+                partitionMapper.detachPartition(PARENT_TABLE, name);
+                partitionMapper.dropTable(name);
+                dropped++;
+            }
+        }
+
+        meterRegistry.counter("analytics.partitions.dropped", "table", PARENT_TABLE).increment(dropped);
+        if (dropped > 0) {
+            log.info("Dropped {} {} partitions before {}", dropped, PARENT_TABLE, cutoff);
+        }
+        return dropped;
+    }
+}
@@ -0,0 +1,103 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.dto.NovelRankingDeltaDTO;
+import com.yushan.analytics_service.dto.ReadingEventDTO;
+import com.yushan.analytics_service.entity.History;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies batches of reading events: chapter reads become history records,
+ * views and votes become ranking deltas.
+ */
+@Slf4j
+@Service
+public class ReadingEventService {
+
+    @Autowired
+    private HistoryService historyService;
+
+    @Autowired
+    private RankingUpdateService rankingUpdateService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String EVENTS_COUNTER = "analytics.reading.events.processed";
+
+    /**
+     * Process one batch of events. Chapter reads are written first because they are idempotent: reading_event
+     * skips event ids it already holds and the history upsert never moves a row back, so a redelivered batch
+     * changes nothing. Ranking deltas are not idempotent, so they are applied last and only once the reads are
+     * stored; a batch redelivered after its deltas were applied still counts its views and votes again.
+     */
+    public void process(List<ReadingEventDTO> events) {
+        List<History> reads = new ArrayList<>();
+        Map<Integer, NovelRankingDeltaDTO> deltasByNovel = new HashMap<>();
+        int skipped = 0;
+
+        for (ReadingEventDTO event : events) {
+            if (event.getType() == null || event.getNovelId() == null) {
+                skipped++;
+                continue;
+            }
+            switch (event.getType()) {
+                case CHAPTER_READ -> {
+                    History read = new History();
+                    read.setUserId(event.getUserId());
+                    read.setNovelId(event.getNovelId());
+                    read.setChapterId(event.getChapterId());
+                    read.setUpdateTime(event.getOccurredAt());
+                    read.setUuid(event.getEventId());
+                    reads.add(read);
+                }
+                case VIEW -> {
+                    NovelRankingDeltaDTO delta = deltaFor(deltasByNovel, event);
+                    delta.setViewDelta(delta.getViewDelta() + 1);
+                }
+                case VOTE -> {
+                    NovelRankingDeltaDTO delta = deltaFor(deltasByNovel, event);
+                    delta.setVoteDelta(delta.getVoteDelta() + 1);
+                }
+            }
+            meterRegistry.counter(EVENTS_COUNTER, "type", event.getType().name()).increment();
+        }
+
+        if (!reads.isEmpty()) {
+            historyService.recordReads(reads);
+        }
+        if (!deltasByNovel.isEmpty()) {
+            rankingUpdateService.applyNovelDeltas(deltasByNovel.values());
+        }
+        if (skipped > 0) {
+            log.warn("Skipped {} reading events without a type or novel id", skipped);
+        }
+        log.debug("Processed {} reading events: {} chapter reads, ranking deltas for {} novels",
+                events.size(), reads.size(), deltasByNovel.size());
+    }
+
+    private static NovelRankingDeltaDTO deltaFor(Map<Integer, NovelRankingDeltaDTO> deltasByNovel, ReadingEventDTO event) {
+        NovelRankingDeltaDTO delta = deltasByNovel.computeIfAbsent(event.getNovelId(), novelId -> {
+            NovelRankingDeltaDTO created = new NovelRankingDeltaDTO();
+            created.setNovelId(novelId);
+            return created;
+        });
+        if (delta.getCategoryId() == null) {
+            delta.setCategoryId(event.getCategoryId());
+        }
+        if (delta.getAuthorId() == null) {
+            delta.setAuthorId(event.getAuthorId());
+        }
+        if (delta.getAuthorUsername() == null) {
+            delta.setAuthorUsername(event.getAuthorUsername());
+        }
+        return delta;
+    }
+}
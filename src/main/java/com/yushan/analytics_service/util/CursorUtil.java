@@ -0,0 +1,51 @@
+package com.yushan.analytics_service.util;
+
+import com.yushan.analytics_service.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Encodes keyset pagination positions as opaque cursors.
+ * A cursor is the URL-safe Base64 of "epochMillis:id" for the last row of a page.
+ */
+public class CursorUtil {
+
+    private CursorUtil() {
+    }
+
+    /**
+     * Position of the last row returned, sorted by time then id
+     */
+    public record Position(Date time, Integer id) {
+    }
+
+    /**
+     * Encode the position of the last row of a page
+     * @return Opaque cursor string
+     */
+    public static String encode(Date time, Integer id) {
+        String raw = time.getTime() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor produced by {@link #encode}
+     * @return Position, or null for a null or blank cursor (first page)
+     * @throws ValidationException if the cursor is malformed
+     */
+    public static Position decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new Position(new Date(Long.parseLong(raw.substring(0, separator))),
+                    Integer.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+}
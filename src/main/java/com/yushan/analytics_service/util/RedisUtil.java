@@ -1,12 +1,32 @@
 package com.yushan.analytics_service.util;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Redis utility class for caching gamification-related data.
@@ -18,6 +38,13 @@ public class RedisUtil {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // COUNT hint for SCAN; also the batch size for UNLINK when deleting by pattern
+    @Value("${analytics.redis.scan-count:500}")
+    private int scanCount = 500;
+
     // Cache key prefixes
     private static final String ACHIEVEMENT_PREFIX = "achievement:";
     private static final String TRANSACTION_PREFIX = "transaction:";
@@ -32,6 +59,9 @@ public class RedisUtil {
     private static final Duration USER_CACHE_TTL = Duration.ofHours(1);
     private static final Duration GAMIFICATION_CACHE_TTL = Duration.ofMinutes(15);
 
+    // Maximum members sent in a single ZADD by the bulk methods
+    private static final int ZADD_BATCH_SIZE = 1000;
+
     /**
      * Set a key-value pair with TTL
      */
@@ -65,6 +95,105 @@ public class RedisUtil {
         return null;
     }
 
+    /**
+     * Get the values of several keys in one round-trip (MGET).
+     * The returned list is aligned with the given keys; missing keys map to null.
+     */
+    public List<Object> multiGet(List<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+        return values != null ? values : Collections.nCopies(keys.size(), null);
+    }
+
+    /**
+     * Set several key-value pairs with the same TTL in one pipelined round-trip
+     */
+    public void setAllPipelined(Map<String, ?> entries, Duration ttl) {
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> stringOperations = (RedisOperations<String, Object>) operations;
+                entries.forEach((key, value) -> stringOperations.opsForValue().set(key, value, ttl));
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Add members to several HyperLogLogs and refresh their TTL in one pipelined round-trip
+     */
+    public void pfAddPipelined(Map<String, ? extends Collection<?>> membersByKey, Duration ttl) {
+        if (membersByKey == null || membersByKey.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> stringOperations = (RedisOperations<String, Object>) operations;
+                membersByKey.forEach((key, members) -> {
+                    if (!members.isEmpty()) {
+                        stringOperations.opsForHyperLogLog().add(key, members.toArray());
+                        stringOperations.expire(key, ttl);
+                    }
+                });
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Create an empty HyperLogLog (PFADD without members) unless the key exists, and refresh its TTL.
+     * Unlike a missing key, an empty sketch tells readers that the set was computed and found empty.
+     */
+    public void pfCreate(String key, Duration ttl) {
+        byte[] rawKey = redisTemplate.getStringSerializer().serialize(key);
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.execute("PFADD", rawKey);
+            return connection.keyCommands().expire(rawKey, ttl.toSeconds());
+        });
+    }
+
+    /**
+     * Whether each key exists, in one pipelined round-trip
+     */
+    public List<Boolean> existsEach(List<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> stringOperations = (RedisOperations<String, Object>) operations;
+                keys.forEach(stringOperations::hasKey);
+                return null;
+            }
+        });
+        List<Boolean> exists = new ArrayList<>(keys.size());
+        for (Object result : results) {
+            exists.add(Boolean.TRUE.equals(result));
+        }
+        return exists;
+    }
+
+    /**
+     * Approximate cardinality of the union of several HyperLogLogs (PFCOUNT over all keys, merged server-side)
+     */
+    public long pfCountUnion(List<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return 0L;
+        }
+        Long count = redisTemplate.opsForHyperLogLog().size(keys.toArray(new String[0]));
+        return count != null ? count : 0L;
+    }
+
     /**
      * Delete key
      */
@@ -108,10 +237,53 @@ public class RedisUtil {
     }
 
     /**
-     * Get keys matching pattern
+     * Get keys matching pattern.
+     * Walks the keyspace incrementally with SCAN instead of KEYS, so other clients of the
+     * shared instance are never blocked behind a full keyspace walk.
      */
     public Set<String> keys(String pattern) {
-        return redisTemplate.keys(pattern);
+        Set<String> keys = new HashSet<>();
+        scan(pattern, "keys", keys::addAll);
+        return keys;
+    }
+
+    /**
+     * Delete all keys matching pattern.
+     * Keys are found with SCAN and removed in batches with UNLINK, which frees memory off the event loop.
+     *
+     * @return number of keys deleted
+     */
+    public long deleteByPattern(String pattern) {
+        AtomicLong deleted = new AtomicLong();
+        scan(pattern, "delete", batch -> {
+            Long unlinked = redisTemplate.unlink(batch);
+            deleted.addAndGet(unlinked != null ? unlinked : 0);
+        });
+        meterRegistry.summary("redis.scan.keys.deleted", "operation", "delete").record(deleted.get());
+        return deleted.get();
+    }
+
+    /**
+     * Iterate keys matching pattern with a SCAN cursor, handing them to the consumer in batches of scanCount
+     */
+    private void scan(String pattern, String operation, Consumer<List<String>> batchConsumer) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(scanCount).build();
+        long scanned = 0;
+        List<String> batch = new ArrayList<>(scanCount);
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                scanned++;
+                if (batch.size() >= scanCount) {
+                    batchConsumer.accept(batch);
+                    batch = new ArrayList<>(scanCount);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            batchConsumer.accept(batch);
+        }
+        meterRegistry.summary("redis.scan.keys.scanned", "operation", operation).record(scanned);
     }
 
     // Achievement-specific cache methods
@@ -293,10 +465,7 @@ public class RedisUtil {
         deleteAchievementCache(achievementId);
         
         // Invalidate user achievement caches
-        Set<String> achievementKeys = keys(ACHIEVEMENT_PREFIX + "user:*");
-        if (!achievementKeys.isEmpty()) {
-            delete(achievementKeys);
-        }
+        deleteByPattern(ACHIEVEMENT_PREFIX + "user:*");
     }
 
     /**
@@ -306,46 +475,31 @@ public class RedisUtil {
         deleteTransactionCache(transactionId);
         
         // Invalidate user transaction caches
-        Set<String> transactionKeys = keys(TRANSACTION_PREFIX + "user:*");
-        if (!transactionKeys.isEmpty()) {
-            delete(transactionKeys);
-        }
+        deleteByPattern(TRANSACTION_PREFIX + "user:*");
     }
 
     /**
      * Invalidate all user-related caches
      */
     public void invalidateUserCaches(String userId) {
-        Set<String> userKeys = keys(USER_PREFIX + "*:" + userId);
-        if (!userKeys.isEmpty()) {
-            delete(userKeys);
-        }
+        deleteByPattern(USER_PREFIX + "*:" + userId);
         
         // Invalidate stats caches
-        Set<String> statsKeys = keys(STATS_PREFIX + "user:" + userId);
-        if (!statsKeys.isEmpty()) {
-            delete(statsKeys);
-        }
+        delete(STATS_PREFIX + "user:" + userId);
     }
 
     /**
      * Invalidate all gamification caches
      */
     public void invalidateGamificationCaches() {
-        Set<String> gamificationKeys = keys(GAMIFICATION_PREFIX + "*");
-        if (!gamificationKeys.isEmpty()) {
-            delete(gamificationKeys);
-        }
+        deleteByPattern(GAMIFICATION_PREFIX + "*");
     }
 
     /**
      * Clear all caches (use with caution)
      */
     public void clearAllCaches() {
-        Set<String> allKeys = keys("*");
-        if (!allKeys.isEmpty()) {
-            delete(allKeys);
-        }
+        deleteByPattern("*");
     }
 
     // Sorted Set (ZSet) operations for ranking
@@ -357,6 +511,87 @@ public class RedisUtil {
         return redisTemplate.opsForZSet().add(key, member, score);
     }
 
+    /**
+     * Add members to several sorted sets in one pipelined round-trip.
+     * Large member sets are split into ZADD commands of at most ZADD_BATCH_SIZE members
+     * so a single command never blocks the server for long.
+     */
+    public void zAddAllPipelined(Map<String, ? extends Collection<TypedTuple<Object>>> tuplesByKey) {
+        zAddAllPipelined(tuplesByKey, null);
+    }
+
+    /**
+     * Add members to several sorted sets in one pipelined round-trip and set a TTL on every written key
+     */
+    public void zAddAllPipelined(Map<String, ? extends Collection<TypedTuple<Object>>> tuplesByKey, Duration ttl) {
+        if (tuplesByKey == null || tuplesByKey.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                ZSetOperations<String, Object> zSetOps = ((RedisOperations<String, Object>) operations).opsForZSet();
+                for (Map.Entry<String, ? extends Collection<TypedTuple<Object>>> entry : tuplesByKey.entrySet()) {
+                    Set<TypedTuple<Object>> chunk = new LinkedHashSet<>();
+                    for (TypedTuple<Object> tuple : entry.getValue()) {
+                        chunk.add(tuple);
+                        if (chunk.size() >= ZADD_BATCH_SIZE) {
+                            zSetOps.add(entry.getKey(), chunk);
+                            chunk = new LinkedHashSet<>();
+                        }
+                    }
+                    if (!chunk.isEmpty()) {
+                        zSetOps.add(entry.getKey(), chunk);
+                    }
+                    if (ttl != null) {
+                        ((RedisOperations<String, Object>) operations).expire(entry.getKey(), ttl);
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Atomically rename a set of keys and delete others in a single MULTI/EXEC transaction.
+     * RENAME carries a staging key's TTL over to its target, so each renamed key is PERSISTed in the same
+     * transaction; staging keys can expire until they are published, published keys never do.
+     * Readers see either every key before the swap or every key after it.
+     */
+    public void renameAll(Map<String, String> sourceToTarget, Collection<String> keysToDelete) {
+        boolean hasRenames = sourceToTarget != null && !sourceToTarget.isEmpty();
+        boolean hasDeletes = keysToDelete != null && !keysToDelete.isEmpty();
+        if (!hasRenames && !hasDeletes) {
+            return;
+        }
+        redisTemplate.execute(new SessionCallback<List<Object>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> List<Object> execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                ops.multi();
+                if (hasRenames) {
+                    for (Map.Entry<String, String> entry : sourceToTarget.entrySet()) {
+                        ops.rename(entry.getKey(), entry.getValue());
+                        ops.persist(entry.getValue());
+                    }
+                }
+                if (hasDeletes) {
+                    ops.unlink(keysToDelete);
+                }
+                return ops.exec();
+            }
+        });
+    }
+
+    /**
+     * Create a sorted set member/score pair for the bulk ZADD methods
+     */
+    public static TypedTuple<Object> tuple(String member, double score) {
+        return new DefaultTypedTuple<>(member, score);
+    }
+
     /**
      * Get the cardinality (number of elements) of a sorted set
      */
@@ -374,7 +609,25 @@ public class RedisUtil {
         }
         return result.stream()
                 .map(Object::toString)
-                .collect(java.util.stream.Collectors.toSet());
+                .collect(java.util.stream.Collectors.toCollection(java.util.LinkedHashSet::new));
+    }
+
+    /**
+     * Get elements with their scores from sorted set in reverse order (highest score first).
+     * The returned list preserves the sorted set ordering.
+     */
+    public List<TypedTuple<String>> zReverseRangeWithScores(String key, long start, long end) {
+        Set<TypedTuple<Object>> result = redisTemplate.opsForZSet().reverseRangeWithScores(key, start, end);
+        if (result == null) {
+            return Collections.emptyList();
+        }
+        List<TypedTuple<String>> tuples = new ArrayList<>(result.size());
+        for (TypedTuple<Object> tuple : result) {
+            if (tuple.getValue() != null) {
+                tuples.add(TypedTuple.of(tuple.getValue().toString(), tuple.getScore()));
+            }
+        }
+        return tuples;
     }
 
     /**
@@ -391,10 +644,144 @@ public class RedisUtil {
         return redisTemplate.opsForZSet().score(key, member);
     }
 
+    /**
+     * Get the scores of several members of a sorted set in one round-trip (ZMSCORE).
+     * The returned list is aligned with the given members; missing members map to null.
+     */
+    public List<Double> zScores(String key, List<String> members) {
+        if (members == null || members.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Double> scores = redisTemplate.opsForZSet().score(key, members.toArray());
+        return scores != null ? scores : Collections.nCopies(members.size(), null);
+    }
+
+    /**
+     * Get the scores of members of several sorted sets in one pipelined round-trip (one ZMSCORE per key).
+     * Each returned list is aligned with the members requested for that key; missing members map to null.
+     */
+    public Map<String, List<Double>> zScoresPipelined(Map<String, List<String>> membersByKey) {
+        if (membersByKey == null || membersByKey.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<String> keys = new ArrayList<>(membersByKey.keySet());
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                ZSetOperations<String, Object> zSetOps = ((RedisOperations<String, Object>) operations).opsForZSet();
+                for (String key : keys) {
+                    zSetOps.score(key, membersByKey.get(key).toArray());
+                }
+                return null;
+            }
+        });
+
+        Map<String, List<Double>> scoresByKey = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            List<String> members = membersByKey.get(keys.get(i));
+            Object result = results != null && i < results.size() ? results.get(i) : null;
+            List<Double> scores = new ArrayList<>(members.size());
+            if (result instanceof List<?> list) {
+                for (Object score : list) {
+                    scores.add(score instanceof Number number ? number.doubleValue() : null);
+                }
+            }
+            while (scores.size() < members.size()) {
+                scores.add(null);
+            }
+            scoresByKey.put(keys.get(i), scores);
+        }
+        return scoresByKey;
+    }
+
+    /**
+     * Increment members of several sorted sets in one pipelined round-trip (ZINCRBY).
+     * Missing keys and members are created with the increment as their score.
+     */
+    public void zIncrementAllPipelined(Map<String, Map<String, Double>> incrementsByKey) {
+        if (incrementsByKey == null || incrementsByKey.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                ZSetOperations<String, Object> zSetOps = ((RedisOperations<String, Object>) operations).opsForZSet();
+                for (Map.Entry<String, Map<String, Double>> entry : incrementsByKey.entrySet()) {
+                    for (Map.Entry<String, Double> increment : entry.getValue().entrySet()) {
+                        zSetOps.incrementScore(entry.getKey(), increment.getKey(), increment.getValue());
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Get every member of a sorted set, walking it incrementally with ZSCAN so large sets never block the server
+     */
+    public Set<String> zMembers(String key) {
+        Set<String> members = new HashSet<>();
+        ScanOptions options = ScanOptions.scanOptions().count(scanCount).build();
+        try (Cursor<TypedTuple<Object>> cursor = redisTemplate.opsForZSet().scan(key, options)) {
+            while (cursor.hasNext()) {
+                Object member = cursor.next().getValue();
+                if (member != null) {
+                    members.add(member.toString());
+                }
+            }
+        }
+        return members;
+    }
+
+    /**
+     * Remove members from a sorted set
+     */
+    public Long zRemove(String key, Collection<String> members) {
+        if (members == null || members.isEmpty()) {
+            return 0L;
+        }
+        return redisTemplate.opsForZSet().remove(key, members.toArray());
+    }
+
+    // Hash operations
+
+    /**
+     * Put all entries into a hash
+     */
+    public void hPutAll(String key, Map<String, ?> entries) {
+        if (entries != null && !entries.isEmpty()) {
+            redisTemplate.<String, Object>opsForHash().putAll(key, entries);
+        }
+    }
+
+    /**
+     * Delete fields from a hash
+     */
+    public Long hDelete(String key, Collection<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return 0L;
+        }
+        return redisTemplate.opsForHash().delete(key, fields.toArray());
+    }
+
+    /**
+     * Get the values of several hash fields in one round-trip (HMGET).
+     * The returned list is aligned with the given fields; missing fields map to null.
+     */
+    public List<Object> hMultiGet(String key, List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Object> values = redisTemplate.<String, Object>opsForHash().multiGet(key, fields);
+        return values != null ? values : Collections.nCopies(fields.size(), null);
+    }
+
     /**
      * Delete multiple keys by collection
      */
-    public void delete(java.util.Collection<String> keys) {
+    public void delete(Collection<String> keys) {
         if (keys != null && !keys.isEmpty()) {
             redisTemplate.delete(keys);
         }
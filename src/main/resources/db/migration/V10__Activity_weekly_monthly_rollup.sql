@@ -0,0 +1,24 @@
+-- Weekly and monthly activity rollups for the incremental aggregator.
+-- Distinct readers and novels do not add up from days to weeks or months, so each period is computed
+-- once from reading_event when it closes and kept after the raw events of the period have expired.
+-- bucket_date is the first day of the period: the Monday of the week, as DATE_TRUNC('week'), or the 1st.
+
+-- ========================================
+-- TABLES
+-- ========================================
+
+CREATE TABLE IF NOT EXISTS activity_weekly_rollup (
+    bucket_date DATE PRIMARY KEY,
+    active_users BIGINT NOT NULL,
+    active_novels BIGINT NOT NULL,
+    reading_events BIGINT NOT NULL,
+    create_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS activity_monthly_rollup (
+    bucket_date DATE PRIMARY KEY,
+    active_users BIGINT NOT NULL,
+    active_novels BIGINT NOT NULL,
+    reading_events BIGINT NOT NULL,
+    create_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,35 @@
+-- One history row per (user, novel): deduplicate existing rows, then enforce it with a unique constraint
+-- so chapter-progress writes can be a single INSERT ... ON CONFLICT DO UPDATE
+
+-- ========================================
+-- DEDUPLICATION
+-- ========================================
+
+-- The surviving row keeps the earliest create_time of its duplicates
+UPDATE history h
+SET create_time = d.first_create_time
+FROM (
+    SELECT user_id, novel_id, MIN(create_time) AS first_create_time
+    FROM history
+    GROUP BY user_id, novel_id
+    HAVING COUNT(*) > 1
+) d
+WHERE h.user_id = d.user_id
+  AND h.novel_id = d.novel_id;
+
+-- Keep the most recently updated row (highest id on ties)
+DELETE FROM history h
+USING history newer
+WHERE h.user_id = newer.user_id
+  AND h.novel_id = newer.novel_id
+  AND (h.update_time < newer.update_time
+       OR (h.update_time = newer.update_time AND h.id < newer.id));
+
+-- ========================================
+-- CONSTRAINTS
+-- ========================================
+
+ALTER TABLE history ADD CONSTRAINT uk_history_user_novel UNIQUE (user_id, novel_id);
+
+-- The unique constraint's index covers (user_id, novel_id) lookups
+DROP INDEX IF EXISTS idx_history_user_novel;
@@ -0,0 +1,21 @@
+-- Keyset pagination of a user's history walks (user_id, update_time DESC, id DESC)
+-- so deep pages cost the same as the first one
+
+-- ========================================
+-- TIMESTAMP PRECISION
+-- ========================================
+
+-- Cursors carry millisecond timestamps (java.util.Date); storing milliseconds keeps
+-- (update_time, id) comparisons exact instead of skipping or repeating rows at page edges
+ALTER TABLE history
+    ALTER COLUMN create_time TYPE TIMESTAMP(3),
+    ALTER COLUMN update_time TYPE TIMESTAMP(3);
+
+-- ========================================
+-- INDEXES
+-- ========================================
+
+CREATE INDEX IF NOT EXISTS idx_history_user_update_time ON history(user_id, update_time DESC, id DESC);
+
+-- Covered by the leading column of idx_history_user_update_time
+DROP INDEX IF EXISTS idx_history_user_id;
@@ -0,0 +1,58 @@
+-- Append-only log of chapter reads, range-partitioned by month on event_time.
+-- history stays an unpartitioned snapshot: its (user_id, novel_id) key cannot include a time column,
+-- and its rows must outlive any retention window because they hold each reader's current position.
+-- Time-range analytics and retention belong on this log instead, where a range query prunes to the
+-- months it touches and expiring a month is a DETACH + DROP.
+
+-- ========================================
+-- TABLE
+-- ========================================
+
+CREATE TABLE IF NOT EXISTS reading_event (
+    user_id UUID NOT NULL,
+    novel_id INTEGER NOT NULL,
+    chapter_id INTEGER NOT NULL,
+    event_time TIMESTAMP(3) NOT NULL
+) PARTITION BY RANGE (event_time);
+
+-- ========================================
+-- PARTITIONS
+-- ========================================
+
+-- One partition per month from the oldest history row up to two months ahead;
+-- ReadingEventPartitionManager keeps creating months ahead and drops expired ones
+DO $$
+DECLARE
+    month_start DATE;
+BEGIN
+    FOR month_start IN
+        SELECT generate_series(
+                   DATE_TRUNC('month', COALESCE((SELECT MIN(update_time) FROM history), CURRENT_DATE)),
+                   DATE_TRUNC('month', CURRENT_DATE) + INTERVAL '2 months',
+                   INTERVAL '1 month')::DATE
+    LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF reading_event FOR VALUES FROM (%L) TO (%L)',
+                       'reading_event_p' || TO_CHAR(month_start, 'YYYYMM'),
+                       month_start,
+                       (month_start + INTERVAL '1 month')::DATE);
+    END LOOP;
+END $$;
+
+-- Catches rows outside every monthly partition (e.g. clock-skewed timestamps) instead of failing the write
+CREATE TABLE IF NOT EXISTS reading_event_default PARTITION OF reading_event DEFAULT;
+
+-- ========================================
+-- INDEXES
+-- ========================================
+
+-- Created on every partition, including ones added later
+CREATE INDEX IF NOT EXISTS idx_reading_event_time ON reading_event(event_time);
+
+-- ========================================
+-- BACKFILL
+-- ========================================
+
+-- The snapshot only knows the last read per (user, novel); seed the log with those
+INSERT INTO reading_event (user_id, novel_id, chapter_id, event_time)
+SELECT user_id, novel_id, chapter_id, update_time
+FROM history;
@@ -0,0 +1,14 @@
+-- Platform-wide activity per day, kept after the raw reading events of that day have expired.
+-- The retention job rolls a day up before it deletes the day's events.
+
+-- ========================================
+-- TABLE
+-- ========================================
+
+CREATE TABLE IF NOT EXISTS activity_daily_rollup (
+    bucket_date DATE PRIMARY KEY,
+    active_users BIGINT NOT NULL,
+    active_novels BIGINT NOT NULL,
+    reading_events BIGINT NOT NULL,
+    create_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
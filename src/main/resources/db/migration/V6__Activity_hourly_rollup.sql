@@ -0,0 +1,20 @@
+-- Hourly activity rollup and per-grain watermarks for the incremental aggregator.
+-- Buckets before a grain's watermark are final and served from the rollup tables;
+-- the open remainder is still answered from reading_event.
+
+-- ========================================
+-- TABLES
+-- ========================================
+
+CREATE TABLE IF NOT EXISTS activity_hourly_rollup (
+    bucket_start TIMESTAMP PRIMARY KEY,
+    active_users BIGINT NOT NULL,
+    active_novels BIGINT NOT NULL,
+    reading_events BIGINT NOT NULL,
+    create_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS rollup_watermark (
+    rollup_name VARCHAR(32) PRIMARY KEY,
+    rolled_up_to TIMESTAMP NOT NULL
+);
@@ -0,0 +1,14 @@
+-- Covering indexes for the time-window analytics queries.
+-- They filter on a bare event_time range and read only user_id or novel_id, so with the column
+-- next to event_time in the index they are answered by index-only scans instead of visiting the heap.
+
+-- ========================================
+-- INDEXES
+-- ========================================
+
+-- Created on every partition, including ones added later
+CREATE INDEX IF NOT EXISTS idx_reading_event_time_user ON reading_event(event_time, user_id);
+CREATE INDEX IF NOT EXISTS idx_reading_event_time_novel ON reading_event(event_time, novel_id);
+
+-- Covered by the leading column of both indexes above
+DROP INDEX IF EXISTS idx_reading_event_time;
@@ -0,0 +1,18 @@
+-- Idempotent appends to reading_event.
+-- Kafka delivers at least once, so a batch can be written again after a retry or a rebalance.
+-- Every read now carries an event id and a repeated one is skipped with ON CONFLICT DO NOTHING.
+-- Rows written before this migration keep a NULL id; NULLs never conflict.
+
+-- ========================================
+-- COLUMNS
+-- ========================================
+
+ALTER TABLE reading_event ADD COLUMN IF NOT EXISTS event_id UUID;
+
+-- ========================================
+-- INDEXES
+-- ========================================
+
+-- A unique index on a partitioned table must contain the partition key; a redelivered read
+-- has the same event_time, so (event_id, event_time) still identifies it
+CREATE UNIQUE INDEX IF NOT EXISTS uk_reading_event_event_id ON reading_event(event_id, event_time);
@@ -0,0 +1,12 @@
+-- Late reads for the incremental rollups.
+-- A read stored after its bucket was rolled up marks the grain dirty from that read's time on;
+-- the next rollup run takes the mark and recomputes from there, moving the watermark back if needed.
+
+-- ========================================
+-- TABLE
+-- ========================================
+
+CREATE TABLE IF NOT EXISTS rollup_dirty (
+    rollup_name VARCHAR(32) PRIMARY KEY,
+    dirty_from TIMESTAMP NOT NULL
+);
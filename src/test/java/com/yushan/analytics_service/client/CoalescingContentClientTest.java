@@ -0,0 +1,110 @@
+package com.yushan.analytics_service.client;
+
+import com.yushan.analytics_service.dto.ApiResponse;
+import com.yushan.analytics_service.dto.NovelDetailResponseDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class CoalescingContentClientTest {
+
+    private CoalescingContentClient client;
+    private ContentServiceClient contentServiceClient;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        client = new CoalescingContentClient();
+        contentServiceClient = mock(ContentServiceClient.class);
+        meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(client, "contentServiceClient", contentServiceClient);
+        ReflectionTestUtils.setField(client, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(client, "windowMs", 50L);
+        client.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetNovel_ConcurrentLookupsShareOneBatchCall() throws Exception {
+        when(contentServiceClient.getNovelsBatch(anyList())).thenAnswer(invocation -> {
+            List<Integer> ids = invocation.getArgument(0);
+            return success(ids.stream().filter(id -> id != 3).map(CoalescingContentClientTest::novel).toList());
+        });
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<NovelDetailResponseDTO>> results = new ArrayList<>();
+        try (ExecutorService callers = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                int novelId = i % 4;
+                results.add(callers.submit(() -> {
+                    start.await();
+                    return client.getNovel(novelId);
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < results.size(); i++) {
+                NovelDetailResponseDTO novel = results.get(i).get(5, TimeUnit.SECONDS);
+                if (i % 4 == 3) {
+                    assertNull(novel);
+                } else {
+                    assertEquals(i % 4, novel.getId());
+                }
+            }
+        }
+
+        verify(contentServiceClient, times(1)).getNovelsBatch(anyList());
+        assertEquals(4, meterRegistry.get("content.client.coalesced").tag("type", "novel").counter().count());
+    }
+
+    @Test
+    void testGetNovels_FullBatchIsSentWithoutWaitingAndFailuresReachEveryCaller() {
+        client.shutdown();
+        ReflectionTestUtils.setField(client, "windowMs", 60_000L);
+        ReflectionTestUtils.setField(client, "maxBatchSize", 3);
+        client.init();
+        when(contentServiceClient.getNovelsBatch(anyList())).thenThrow(new IllegalStateException("content down"));
+
+        List<Integer> ids = IntStream.range(0, 3).boxed().toList();
+        assertThrows(IllegalStateException.class, () -> client.getNovels(ids));
+
+        doReturn(success(List.of(novel(0), novel(1), novel(2)))).when(contentServiceClient).getNovelsBatch(anyList());
+        Map<Integer, NovelDetailResponseDTO> novels = client.getNovels(ids);
+
+        assertEquals(3, novels.size());
+        verify(contentServiceClient, times(2)).getNovelsBatch(ids);
+    }
+
+    private static NovelDetailResponseDTO novel(int id) {
+        NovelDetailResponseDTO novel = new NovelDetailResponseDTO();
+        novel.setId(id);
+        return novel;
+    }
+
+    private static <T> ApiResponse<T> success(T data) {
+        ApiResponse<T> response = new ApiResponse<>();
+        response.setCode(200);
+        response.setData(data);
+        return response;
+    }
+}
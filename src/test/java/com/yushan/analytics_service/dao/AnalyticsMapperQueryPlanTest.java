@@ -0,0 +1,183 @@
+package com.yushan.analytics_service.dao;
+
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards the time-window analytics queries against predicates that cannot use an index,
+ * such as DATE(event_time) = ..., by checking that every plan on a seeded H2 copy of reading_event
+ * with the indexes of the V7 migration seeks on event_time rather than scanning.
+ * The chunked retention delete is checked through its inner select, as H2 has no DELETE ... USING or ctid.
+ */
+class AnalyticsMapperQueryPlanTest {
+
+    private static final String MAPPER_RESOURCE = "mapper/AnalyticsMapper.xml";
+    private static final String RETENTION_MAPPER_RESOURCE = "mapper/RetentionMapper.xml";
+    private static final String INDEX_MIGRATION = "db/migration/V7__Reading_event_covering_indexes.sql";
+
+    private static final Pattern EXPIRED_ROWS_SELECT =
+            Pattern.compile("USING\\s*\\(\\s*SELECT\\s+tableoid,\\s*ctid(.*)\\)\\s*expired", Pattern.DOTALL);
+
+    // H2 prints the index and the condition it seeks on; a full table or index scan has no condition
+    private static final Pattern INDEX_RANGE_SCAN = Pattern.compile("/\\* public\\.idx_reading_event_\\w+: event_time");
+
+    private static Connection connection;
+    private static Configuration configuration;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:analytics_plans;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=HOUR;DB_CLOSE_DELAY=-1");
+        connection = dataSource.getConnection();
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE reading_event (user_id UUID NOT NULL, novel_id INTEGER NOT NULL, "
+                    + "chapter_id INTEGER NOT NULL, event_time TIMESTAMP(3) NOT NULL)");
+            String migration;
+            try (InputStream in = Resources.getResourceAsStream(INDEX_MIGRATION)) {
+                migration = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            for (String sql : migration.split(";")) {
+                String ddl = sql.replaceAll("(?m)^--.*$", "").trim();
+                if (ddl.startsWith("CREATE INDEX")) {
+                    statement.execute(ddl);
+                }
+            }
+        }
+        seed();
+
+        configuration = new Configuration(new Environment("plans", new JdbcTransactionFactory(), dataSource));
+        try (InputStream mapperXml = Resources.getResourceAsStream(MAPPER_RESOURCE)) {
+            new XMLMapperBuilder(mapperXml, configuration, MAPPER_RESOURCE, configuration.getSqlFragments()).parse();
+        }
+        try (InputStream mapperXml = Resources.getResourceAsStream(RETENTION_MAPPER_RESOURCE)) {
+            new XMLMapperBuilder(mapperXml, configuration, RETENTION_MAPPER_RESOURCE, configuration.getSqlFragments()).parse();
+        }
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    void testTimeWindowQueries_UseAnIndexOnReadingEvent() throws Exception {
+        List<String> checked = new ArrayList<>();
+        for (String id : configuration.getMappedStatementNames()) {
+            if (!id.startsWith(AnalyticsMapper.class.getName())) {
+                continue;
+            }
+            MappedStatement statement = configuration.getMappedStatement(id);
+            for (String period : List.of("daily", "weekly", "monthly")) {
+                Map<String, Object> parameters = parameters(period);
+                BoundSql boundSql = statement.getBoundSql(parameters);
+                if (!boundSql.getSql().contains("reading_event")) {
+                    continue;
+                }
+                String plan = explain(statement, boundSql, parameters);
+                assertTrue(INDEX_RANGE_SCAN.matcher(plan).find(),
+                        id + " (" + period + ") does not seek an event_time index:\n" + plan);
+                checked.add(id);
+            }
+        }
+        assertFalse(checked.isEmpty(), "no reading_event queries found in " + MAPPER_RESOURCE);
+    }
+
+    @Test
+    void testRetentionDelete_SelectsExpiredRowsThroughAnEventTimeIndex() throws Exception {
+        MappedStatement statement = configuration.getMappedStatement(
+                RetentionMapper.class.getName() + ".deleteReadingEventsBefore");
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("cutoff", Timestamp.valueOf("2026-03-01 00:00:00"));
+        parameters.put("limit", 1000);
+        BoundSql boundSql = statement.getBoundSql(parameters);
+        Matcher expiredRows = EXPIRED_ROWS_SELECT.matcher(boundSql.getSql());
+        assertTrue(expiredRows.find(), "no expired rows select in:\n" + boundSql.getSql());
+
+        String plan = explain(statement, boundSql, parameters, "SELECT _rowid_" + expiredRows.group(1));
+        assertTrue(INDEX_RANGE_SCAN.matcher(plan).find(), "retention delete does not seek an event_time index:\n" + plan);
+    }
+
+    private static String explain(MappedStatement statement, BoundSql boundSql, Object parameters) throws Exception {
+        return explain(statement, boundSql, parameters, boundSql.getSql());
+    }
+
+    private static String explain(MappedStatement statement, BoundSql boundSql, Object parameters, String sql)
+            throws Exception {
+        try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+            new DefaultParameterHandler(statement, parameters, boundSql).setParameters(explain);
+            try (ResultSet plan = explain.executeQuery()) {
+                StringBuilder text = new StringBuilder();
+                while (plan.next()) {
+                    text.append(plan.getString(1)).append('\n');
+                }
+                return text.toString();
+            }
+        }
+    }
+
+    private static Map<String, Object> parameters(String period) {
+        Timestamp start = Timestamp.valueOf("2026-09-01 00:00:00");
+        Timestamp end = Timestamp.valueOf("2026-10-01 00:00:00");
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("previousStartDate", Timestamp.valueOf("2026-08-01 00:00:00"));
+        parameters.put("startDate", start);
+        parameters.put("endDate", end);
+        parameters.put("startTime", start);
+        parameters.put("endTime", end);
+        parameters.put("date", start);
+        parameters.put("period", period);
+        parameters.put("limit", 10);
+        return parameters;
+    }
+
+    private static void seed() throws Exception {
+        List<UUID> users = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            users.add(UUID.randomUUID());
+        }
+        long firstEvent = Timestamp.valueOf("2026-01-01 00:00:00").getTime();
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO reading_event (user_id, novel_id, chapter_id, event_time) VALUES (?, ?, ?, ?)")) {
+            for (int i = 0; i < 5000; i++) {
+                insert.setObject(1, users.get(i % users.size()));
+                insert.setInt(2, i % 200);
+                insert.setInt(3, i);
+                // Roughly one read per hour across the year
+                insert.setTimestamp(4, new Timestamp(firstEvent + i * 3_600_000L));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.yushan.analytics_service.integration;
+
+import com.yushan.analytics_service.client.ContentServiceClient;
+import com.yushan.analytics_service.client.EngagementServiceClient;
+import com.yushan.analytics_service.client.GamificationServiceClient;
+import com.yushan.analytics_service.client.UserServiceClient;
+import com.yushan.analytics_service.config.TestRedisConfig;
+import com.yushan.analytics_service.dto.NovelRankingDeltaDTO;
+import com.yushan.analytics_service.dto.ReadingEventDTO;
+import com.yushan.analytics_service.entity.History;
+import com.yushan.analytics_service.enums.ReadingEventType;
+import com.yushan.analytics_service.service.HistoryService;
+import com.yushan.analytics_service.service.RankingUpdateService;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.cloud.config.import-check.enabled=false"
+})
+@Import(TestRedisConfig.class)
+@ActiveProfiles("integration-test")
+@EmbeddedKafka(partitions = 1, topics = "reading-events")
+@TestPropertySource(properties = {
+        "spring.flyway.enabled=false",
+        "spring.cloud.discovery.enabled=false",
+        "spring.cloud.config.enabled=false",
+        "spring.cloud.config.discovery.enabled=false",
+        "spring.cloud.config.import-check.enabled=false",
+        "spring.config.import=optional:configserver:",
+        "eureka.client.enabled=false",
+        "eureka.client.register-with-eureka=false",
+        "eureka.client.fetch-registry=false",
+        "spring.datasource.url=jdbc:h2:mem:testdb",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "services.user.name=user-service",
+        "services.user.url=http://localhost:8081",
+        "services.content.name=content-service",
+        "services.content.url=http://localhost:8082",
+        "services.engagement.name=engagement-service",
+        "services.engagement.url=http://localhost:8084",
+        "services.gamification.name=gamification-service",
+        "services.gamification.url=http://localhost:8085",
+        "jwt.secret=testSecretKeyForTestingPurposesOnly123456789012345678901234567890",
+        "jwt.issuer=test-micro-service",
+        "jwt.algorithm=HS256",
+        "jwt.expiration=3600000",
+        "spring.main.lazy-initialization=true",
+        "spring.kafka.enabled=true",
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "analytics.kafka.consumer.concurrency=1"
+})
+class ReadingEventKafkaIntegrationTest {
+
+    @MockBean
+    private ContentServiceClient contentServiceClient;
+
+    @MockBean
+    private UserServiceClient userServiceClient;
+
+    @MockBean
+    private EngagementServiceClient engagementServiceClient;
+
+    @MockBean
+    private GamificationServiceClient gamificationServiceClient;
+
+    @MockBean
+    private HistoryService historyService;
+
+    @MockBean
+    private RankingUpdateService rankingUpdateService;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReadingEvents_WriteHistoryAndRankingDeltas() {
+        UUID userId = UUID.randomUUID();
+        UUID authorId = UUID.randomUUID();
+        Date now = new Date();
+        KafkaTemplate<String, ReadingEventDTO> template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, embeddedKafka.getBrokersAsString(),
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class)));
+
+        template.send("reading-events", new ReadingEventDTO(ReadingEventType.CHAPTER_READ, userId, 7, 70, 3, null, null, now, null));
+        template.send("reading-events", new ReadingEventDTO(ReadingEventType.VIEW, userId, 7, null, 3, authorId, "author", now, null));
+        template.send("reading-events", new ReadingEventDTO(ReadingEventType.VIEW, userId, 7, null, 3, authorId, "author", now, null));
+        template.send("reading-events", new ReadingEventDTO(ReadingEventType.VOTE, userId, 7, null, 3, null, null, now, null));
+        template.flush();
+
+        ArgumentCaptor<Collection<History>> reads = ArgumentCaptor.forClass(Collection.class);
+        verify(historyService, timeout(30_000)).recordReads(reads.capture());
+        History read = reads.getValue().iterator().next();
+        assertEquals(userId, read.getUserId());
+        assertEquals(70, read.getChapterId());
+        // Derived from the record's coordinates, so a redelivery of the record carries the same id
+        assertEquals(UUID.nameUUIDFromBytes("reading-events/0/0".getBytes(StandardCharsets.UTF_8)), read.getUuid());
+
+        ArgumentCaptor<Collection<NovelRankingDeltaDTO>> deltas = ArgumentCaptor.forClass(Collection.class);
+        verify(rankingUpdateService, timeout(30_000).atLeastOnce()).applyNovelDeltas(deltas.capture());
+        List<NovelRankingDeltaDTO> applied = new ArrayList<>();
+        deltas.getAllValues().forEach(applied::addAll);
+        assertEquals(2, applied.stream().mapToLong(NovelRankingDeltaDTO::getViewDelta).sum());
+        assertEquals(1, applied.stream().mapToLong(NovelRankingDeltaDTO::getVoteDelta).sum());
+        // The author's username travels with the delta, so the profile is written before any reconciliation
+        assertTrue(applied.stream().anyMatch(delta -> authorId.equals(delta.getAuthorId())
+                && "author".equals(delta.getAuthorUsername())));
+    }
+}
@@ -0,0 +1,122 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.dao.AnalyticsMapper;
+import com.yushan.analytics_service.entity.History;
+import com.yushan.analytics_service.util.RedisUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ActiveUserSketchServiceTest {
+
+    @Mock
+    private RedisUtil redisUtil;
+
+    @Mock
+    private AnalyticsMapper analyticsMapper;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private ActiveUserSketchService activeUserSketchService;
+
+    @Test
+    void testRecordReads_AddsEachReaderToTheSketchOfTheirDay() {
+        UUID userId = UUID.randomUUID();
+        History read = new History();
+        read.setUserId(userId);
+        read.setUpdateTime(Timestamp.valueOf("2026-10-18 23:59:00"));
+
+        activeUserSketchService.recordReads(List.of(read, read));
+
+        verify(redisUtil).pfAddPipelined(
+                Map.of("analytics:active-users:2026-10-18", Set.of(userId.toString())), Duration.ofDays(40));
+    }
+
+    @Test
+    void testCountDistinctUsers_RebuildsMissingDaysBeforeCountingTheUnion() {
+        List<String> keys = List.of("analytics:active-users:2026-10-16",
+                "analytics:active-users:2026-10-17", "analytics:active-users:2026-10-18");
+        UUID userId = UUID.randomUUID();
+        when(redisUtil.existsEach(anyList())).thenReturn(List.of(true, true, false, false, true, true));
+        when(analyticsMapper.getActiveUserIds(any(), any())).thenReturn(List.of(userId));
+        when(redisUtil.pfCountUnion(keys)).thenReturn(7L);
+
+        long count = activeUserSketchService.countDistinctUsers(LocalDate.of(2026, 10, 16), LocalDate.of(2026, 10, 18));
+
+        assertEquals(7L, count);
+        verify(analyticsMapper).getActiveUserIds(
+                Timestamp.valueOf("2026-10-17 00:00:00"), Timestamp.valueOf("2026-10-18 00:00:00"));
+        verify(redisUtil).pfAddPipelined(
+                Map.of("analytics:active-users:2026-10-17", List.of(userId.toString())), Duration.ofDays(40));
+        verify(redisUtil).set("analytics:active-users-complete:2026-10-17", Boolean.TRUE, Duration.ofDays(40));
+        assertEquals(1.0, meterRegistry.counter("analytics.active-users.sketch.rebuilt").count());
+    }
+
+    @Test
+    void testCountDistinctUsers_StoresADayWithoutReadersAsAnEmptySketch() {
+        when(redisUtil.existsEach(anyList())).thenReturn(List.of(false, false));
+        when(analyticsMapper.getActiveUserIds(any(), any())).thenReturn(List.of());
+
+        long count = activeUserSketchService.countDistinctUsers(LocalDate.of(2026, 10, 18), LocalDate.of(2026, 10, 18));
+
+        assertEquals(0L, count);
+        verify(redisUtil).pfCreate("analytics:active-users:2026-10-18", Duration.ofDays(40));
+        verify(redisUtil, never()).pfAddPipelined(any(), any());
+    }
+
+    @Test
+    void testCountDistinctUsers_RebuildsADayWhoseSketchExistsWithoutItsCompleteMarker() {
+        // Live reads recreated the sketch after Redis lost it, so it only holds the readers seen since
+        List<String> keys = List.of("analytics:active-users:2026-10-18");
+        UUID userId = UUID.randomUUID();
+        when(redisUtil.existsEach(List.of("analytics:active-users:2026-10-18",
+                "analytics:active-users-complete:2026-10-18"))).thenReturn(List.of(true, false));
+        when(analyticsMapper.getActiveUserIds(any(), any())).thenReturn(List.of(userId));
+        when(redisUtil.pfCountUnion(keys)).thenReturn(1L);
+
+        activeUserSketchService.countDistinctUsers(LocalDate.of(2026, 10, 18), LocalDate.of(2026, 10, 18));
+
+        verify(redisUtil).pfAddPipelined(
+                Map.of("analytics:active-users:2026-10-18", List.of(userId.toString())), Duration.ofDays(40));
+        verify(redisUtil).set("analytics:active-users-complete:2026-10-18", Boolean.TRUE, Duration.ofDays(40));
+    }
+
+    @Test
+    void testRecordReads_DropsTheCompleteMarkerWhenTheUpdateFails() {
+        History read = new History();
+        read.setUserId(UUID.randomUUID());
+        read.setUpdateTime(Timestamp.valueOf("2026-10-18 12:00:00"));
+        doThrow(new RuntimeException("connection reset")).when(redisUtil).pfAddPipelined(any(), any());
+
+        activeUserSketchService.recordReads(List.of(read));
+
+        verify(redisUtil).delete(List.of("analytics:active-users-complete:2026-10-18"));
+    }
+
+    @Test
+    void testInvalidateDays_DropsOnlyTheCompleteMarkers() {
+        activeUserSketchService.invalidateDays(List.of(Timestamp.valueOf("2026-10-17 08:00:00")));
+
+        verify(redisUtil).delete(List.of("analytics:active-users-complete:2026-10-17"));
+    }
+}
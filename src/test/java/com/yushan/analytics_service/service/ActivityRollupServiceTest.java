@@ -0,0 +1,172 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.config.AnalyticsProperties;
+import com.yushan.analytics_service.dao.AnalyticsMapper;
+import com.yushan.analytics_service.dao.RollupMapper;
+import com.yushan.analytics_service.dto.AnalyticsTrendResponseDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ActivityRollupServiceTest {
+
+    @Mock
+    private RollupMapper rollupMapper;
+
+    @Mock
+    private AnalyticsMapper analyticsMapper;
+
+    @Spy
+    private AnalyticsProperties analyticsProperties = new AnalyticsProperties();
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private ActivityRollupService activityRollupService;
+
+    @Test
+    void testAggregate_RollsUpOnlyBucketsClosedSinceTheWatermark() {
+        when(rollupMapper.selectWatermark("hourly")).thenReturn(time("2026-10-18 10:00:00"));
+        when(rollupMapper.selectWatermark("daily")).thenReturn(time("2026-10-17 00:00:00"));
+        when(rollupMapper.rollupHourly(any(), any())).thenReturn(3);
+        when(rollupMapper.rollupDaily(any(), any())).thenReturn(1);
+
+        // At 14:01 the 13:00 bucket is still within its two minute lateness allowance
+        activityRollupService.aggregate(LocalDateTime.of(2026, 10, 18, 14, 1));
+
+        verify(rollupMapper).rollupHourly(time("2026-10-18 10:00:00"), time("2026-10-18 13:00:00"));
+        verify(rollupMapper).upsertWatermark("hourly", time("2026-10-18 13:00:00"));
+        verify(rollupMapper).rollupDaily(time("2026-10-17 00:00:00"), time("2026-10-18 00:00:00"));
+        verify(rollupMapper).upsertWatermark("daily", time("2026-10-18 00:00:00"));
+        assertEquals(3, meterRegistry.get("analytics.rollup.buckets").tag("grain", "hourly").counter().count());
+    }
+
+    @Test
+    void testAggregate_StartsAtEarliestEventAndCapsBucketsPerRun() {
+        analyticsProperties.getAggregation().setBatchSize(24);
+        when(rollupMapper.selectEarliestEventTime()).thenReturn(time("2026-10-01 08:30:00"));
+
+        activityRollupService.aggregate(LocalDateTime.of(2026, 10, 18, 14, 1));
+
+        verify(rollupMapper).rollupHourly(time("2026-10-01 08:00:00"), time("2026-10-02 08:00:00"));
+        verify(rollupMapper).rollupDaily(time("2026-10-01 00:00:00"), time("2026-10-18 00:00:00"));
+    }
+
+    @Test
+    void testAggregate_RecomputesFromADirtyMarkBeforeTheWatermark() {
+        when(rollupMapper.selectWatermark("hourly")).thenReturn(time("2026-10-18 13:00:00"));
+        when(rollupMapper.selectWatermark("daily")).thenReturn(time("2026-10-18 00:00:00"));
+        // A lagging consumer stored a read from 09:40 after 09:00 had been rolled up
+        when(rollupMapper.takeDirty("hourly")).thenReturn(time("2026-10-18 09:40:00"));
+        when(rollupMapper.takeDirty("daily")).thenReturn(time("2026-10-18 09:40:00"));
+
+        activityRollupService.aggregate(LocalDateTime.of(2026, 10, 18, 14, 1));
+
+        verify(rollupMapper).rollupHourly(time("2026-10-18 09:00:00"), time("2026-10-18 13:00:00"));
+        // Today is still open, so the daily grain has nothing to recompute
+        verify(rollupMapper, never()).rollupDaily(any(), any());
+        assertEquals(1, meterRegistry.get("analytics.rollup.rewinds").tag("grain", "hourly").counter().count());
+    }
+
+    @Test
+    void testAggregate_DoesNotRecomputeDaysPastRawRetention() {
+        when(rollupMapper.selectWatermark("hourly")).thenReturn(time("2026-10-18 13:00:00"));
+        when(rollupMapper.selectWatermark("daily")).thenReturn(time("2026-10-18 00:00:00"));
+        when(rollupMapper.takeDirty("hourly")).thenReturn(null);
+        when(rollupMapper.takeDirty("daily")).thenReturn(time("2025-01-05 12:00:00"));
+
+        activityRollupService.aggregate(LocalDateTime.of(2026, 10, 18, 14, 1));
+
+        // 90 days of raw events are kept
+        verify(rollupMapper).rollupDaily(time("2026-07-20 00:00:00"), time("2026-10-18 00:00:00"));
+    }
+
+    @Test
+    void testAggregate_RollsUpAWeekOnceItCloses() {
+        when(rollupMapper.selectWatermark("hourly")).thenReturn(time("2026-10-19 00:00:00"));
+        when(rollupMapper.selectWatermark("daily")).thenReturn(time("2026-10-19 00:00:00"));
+        when(rollupMapper.selectWatermark("weekly")).thenReturn(time("2026-10-12 00:00:00"));
+        when(rollupMapper.selectWatermark("monthly")).thenReturn(time("2026-10-01 00:00:00"));
+
+        // Monday just after midnight: the week of the 12th has closed, October has not
+        activityRollupService.aggregate(LocalDateTime.of(2026, 10, 19, 0, 5));
+
+        verify(rollupMapper).rollupWeekly(time("2026-10-12 00:00:00"), time("2026-10-19 00:00:00"));
+        verify(rollupMapper).upsertWatermark("weekly", time("2026-10-19 00:00:00"));
+        verify(rollupMapper, never()).rollupMonthly(any(), any());
+    }
+
+    @Test
+    void testGetReadingTrends_ReadsClosedWeeksFromRollupAndScansOnlyTheOpenWeek() {
+        when(rollupMapper.selectWatermark("weekly")).thenReturn(time("2026-10-12 00:00:00"));
+
+        activityRollupService.getReadingTrends("weekly", time("2026-09-02 10:00:00"), time("2026-10-18 13:00:00"));
+
+        // Widened to whole weeks, Monday to Monday, on both parts
+        verify(rollupMapper).getReadingTrends("weekly", time("2026-08-31 00:00:00"), time("2026-10-12 00:00:00"));
+        verify(analyticsMapper).getReadingActivityTrends(time("2026-10-12 00:00:00"), time("2026-10-19 00:00:00"),
+                "weekly");
+    }
+
+    @Test
+    void testGetDailyUserTrends_ReadsClosedDaysFromRollupAndScansOnlyTheOpenDay() {
+        when(rollupMapper.selectWatermark("daily")).thenReturn(time("2026-10-18 00:00:00"));
+        AnalyticsTrendResponseDTO.TrendDataPoint closed = new AnalyticsTrendResponseDTO.TrendDataPoint(
+                time("2026-10-17 00:00:00"), "2026-10-17", 40L, 0.0);
+        AnalyticsTrendResponseDTO.TrendDataPoint open = new AnalyticsTrendResponseDTO.TrendDataPoint(
+                time("2026-10-18 00:00:00"), "2026-10-18", 5L, 0.0);
+        when(rollupMapper.getUserTrends(eq("daily"), any(), any())).thenReturn(List.of(closed));
+        when(analyticsMapper.getUserActivityTrends(any(), any(), eq("daily"))).thenReturn(List.of(open));
+
+        Timestamp end = time("2026-10-18 13:00:00");
+        List<AnalyticsTrendResponseDTO.TrendDataPoint> points =
+                activityRollupService.getUserTrends("daily", time("2026-10-10 15:00:00"), end);
+
+        assertEquals(List.of(closed, open), points);
+        verify(rollupMapper).getUserTrends("daily", time("2026-10-10 00:00:00"), time("2026-10-18 00:00:00"));
+        verify(analyticsMapper).getUserActivityTrends(time("2026-10-18 00:00:00"), time("2026-10-19 00:00:00"), "daily");
+    }
+
+    @Test
+    void testGetReadingEventCount_CountsTheSameDaysWhereverTheWatermarkIs() {
+        Timestamp start = time("2026-10-10 15:00:00");
+        Timestamp end = time("2026-10-18 00:00:00");
+
+        // Nothing rolled up yet: the whole window is scanned, from the start of its first day up to the midnight end
+        when(rollupMapper.selectWatermark("daily")).thenReturn(null);
+        when(analyticsMapper.getTotalReadingSessions(time("2026-10-10 00:00:00"), end)).thenReturn(800L);
+        long beforeRollup = activityRollupService.getReadingEventCount(start, end);
+
+        // Rolled up past the end: the same days come from the rollup alone
+        when(rollupMapper.selectWatermark("daily")).thenReturn(time("2026-10-20 00:00:00"));
+        when(rollupMapper.sumDailyReadingEvents(time("2026-10-10 00:00:00"), end)).thenReturn(800L);
+        long afterRollup = activityRollupService.getReadingEventCount(start, end);
+
+        assertEquals(beforeRollup, afterRollup);
+        verify(analyticsMapper, times(1)).getTotalReadingSessions(any(), any());
+    }
+
+    private static Timestamp time(String value) {
+        return Timestamp.valueOf(value);
+    }
+}
@@ -0,0 +1,86 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.dao.AnalyticsMapper;
+import com.yushan.analytics_service.dto.DailyActiveUsersResponseDTO;
+import com.yushan.analytics_service.exception.ValidationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnalyticsServiceTest {
+
+    @Mock
+    private AnalyticsMapper analyticsMapper;
+
+    @Mock
+    private ActivityRollupService activityRollupService;
+
+    @Mock
+    private ActiveUserSketchService activeUserSketchService;
+
+    @InjectMocks
+    private AnalyticsService analyticsService;
+
+    @Test
+    void testGetDailyActiveUsers_SketchAndExactCountTheSameWindows() {
+        // One reader on each side of every window boundary, for 2026-10-18
+        Map<UUID, LocalDateTime> reads = Map.of(
+                UUID.randomUUID(), LocalDateTime.parse("2026-10-18T23:59:59"),
+                UUID.randomUUID(), LocalDateTime.parse("2026-10-18T00:00:00"),
+                UUID.randomUUID(), LocalDateTime.parse("2026-10-17T23:59:59"),
+                UUID.randomUUID(), LocalDateTime.parse("2026-10-12T00:00:00"),
+                UUID.randomUUID(), LocalDateTime.parse("2026-10-11T23:59:59"),
+                UUID.randomUUID(), LocalDateTime.parse("2026-09-19T00:00:00"),
+                UUID.randomUUID(), LocalDateTime.parse("2026-09-18T23:59:59"),
+                UUID.randomUUID(), LocalDateTime.parse("2026-10-19T00:00:00"));
+        when(analyticsMapper.getActiveUserCount(any(), any())).thenAnswer(invocation -> {
+            LocalDateTime start = ((Timestamp) invocation.getArgument(0)).toLocalDateTime();
+            LocalDateTime end = ((Timestamp) invocation.getArgument(1)).toLocalDateTime();
+            return reads.values().stream().filter(time -> !time.isBefore(start) && time.isBefore(end)).count();
+        });
+        when(activeUserSketchService.countDistinctUsers(any(), any())).thenAnswer(invocation -> {
+            LocalDate firstDay = invocation.getArgument(0);
+            LocalDate lastDay = invocation.getArgument(1);
+            return reads.values().stream().map(LocalDateTime::toLocalDate)
+                    .filter(day -> !day.isBefore(firstDay) && !day.isAfter(lastDay)).count();
+        });
+        when(activityRollupService.getHourlyActiveUsers(any())).thenReturn(List.of());
+        when(activityRollupService.oldestRawDay()).thenReturn(LocalDate.of(2026, 7, 20));
+        Date date = Timestamp.valueOf("2026-10-18 12:00:00");
+
+        DailyActiveUsersResponseDTO exact = analyticsService.getDailyActiveUsers(date, true);
+        DailyActiveUsersResponseDTO sketch = analyticsService.getDailyActiveUsers(date, false);
+
+        assertEquals(2L, exact.getDau());
+        assertEquals(4L, exact.getWau());
+        assertEquals(6L, exact.getMau());
+        assertEquals(exact.getDau(), sketch.getDau());
+        assertEquals(exact.getWau(), sketch.getWau());
+        assertEquals(exact.getMau(), sketch.getMau());
+    }
+
+    @Test
+    void testGetDailyActiveUsers_RejectsDatesWhoseMonthReachesPastRawRetention() {
+        when(activityRollupService.oldestRawDay()).thenReturn(LocalDate.of(2026, 7, 20));
+        Date date = Timestamp.valueOf("2026-08-10 12:00:00");
+
+        assertThrows(ValidationException.class, () -> analyticsService.getDailyActiveUsers(date, true));
+        assertThrows(ValidationException.class, () -> analyticsService.getDailyActiveUsers(date, false));
+        verifyNoInteractions(analyticsMapper, activeUserSketchService);
+    }
+}
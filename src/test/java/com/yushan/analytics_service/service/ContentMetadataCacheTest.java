@@ -0,0 +1,103 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.client.CoalescingContentClient;
+import com.yushan.analytics_service.dto.NovelDetailResponseDTO;
+import com.yushan.analytics_service.util.RedisUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ContentMetadataCacheTest {
+
+    @Mock
+    private CoalescingContentClient coalescingContentClient;
+
+    @Mock
+    private RedisUtil redisUtil;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private ContentMetadataCache contentMetadataCache;
+
+    @BeforeEach
+    void setUp() {
+        contentMetadataCache.init();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetNovels_FetchesOnlyRedisMissesInOneBatchAndServesRepeatsLocally() {
+        NovelDetailResponseDTO cached = novel(1);
+        NovelDetailResponseDTO stale = novel(2);
+        when(redisUtil.multiGet(List.of("content:novel:version", "content:novel:1", "content:novel:2", "content:novel:3")))
+                .thenReturn(Arrays.asList(4L, new ContentMetadataCache.VersionedValue(4, cached),
+                        new ContentMetadataCache.VersionedValue(3, stale), null));
+        when(coalescingContentClient.getNovels(List.of(2, 3))).thenReturn(Map.of(2, novel(2), 3, novel(3)));
+
+        Map<Integer, NovelDetailResponseDTO> first = contentMetadataCache.getNovels(List.of(1, 2, 3));
+        Map<Integer, NovelDetailResponseDTO> second = contentMetadataCache.getNovels(List.of(3, 2, 1));
+
+        assertEquals(Set.of(1, 2, 3), first.keySet());
+        assertSame(cached, first.get(1));
+        assertEquals(first, second);
+        verify(coalescingContentClient, times(1)).getNovels(anyList());
+        verify(redisUtil, times(1)).multiGet(anyList());
+
+        ArgumentCaptor<Map<String, Object>> written = ArgumentCaptor.forClass(Map.class);
+        verify(redisUtil).setAllPipelined(written.capture(), eq(Duration.ofSeconds(600)));
+        assertEquals(Set.of("content:novel:2", "content:novel:3"), written.getValue().keySet());
+
+        assertEquals(3, meterRegistry.counter("content.metadata.requests",
+                "type", "novel", "tier", "local", "result", "hit").count());
+        assertEquals(1, meterRegistry.counter("content.metadata.requests",
+                "type", "novel", "tier", "redis", "result", "hit").count());
+        assertEquals(2, meterRegistry.counter("content.metadata.requests",
+                "type", "novel", "tier", "remote", "result", "hit").count());
+    }
+
+    @Test
+    void testGetNovels_RemoteFailureReturnsWhatTheCachesHold() {
+        when(redisUtil.multiGet(anyList())).thenThrow(new IllegalStateException("redis down"));
+        when(coalescingContentClient.getNovels(List.of(1))).thenThrow(new IllegalStateException("content down"));
+
+        assertTrue(contentMetadataCache.getNovels(List.of(1)).isEmpty());
+        verify(redisUtil, never()).setAllPipelined(anyMap(), any());
+    }
+
+    @Test
+    void testInvalidateAllNovels_BumpsVersionAndClearsLocalTier() {
+        when(redisUtil.multiGet(anyList())).thenReturn(Arrays.asList(null, null));
+        when(coalescingContentClient.getNovels(List.of(1))).thenReturn(Map.of(1, novel(1)));
+        contentMetadataCache.getNovels(List.of(1));
+        when(redisUtil.increment("content:novel:version")).thenReturn(1L);
+
+        contentMetadataCache.invalidateAllNovels();
+        contentMetadataCache.getNovels(List.of(1));
+
+        verify(coalescingContentClient, times(2)).getNovels(List.of(1));
+    }
+
+    private static NovelDetailResponseDTO novel(int id) {
+        NovelDetailResponseDTO novel = new NovelDetailResponseDTO();
+        novel.setId(id);
+        novel.setTitle("Novel " + id);
+        return novel;
+    }
+}
@@ -0,0 +1,106 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.config.AnalyticsProperties;
+import com.yushan.analytics_service.dao.RetentionMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DataRetentionServiceTest {
+
+    private static final Timestamp RAW_CUTOFF = Timestamp.valueOf("2026-07-20 00:00:00");
+
+    @Mock
+    private RetentionMapper retentionMapper;
+
+    @Mock
+    private ReadingEventPartitionManager partitionManager;
+
+    @Mock
+    private ActivityRollupService activityRollupService;
+
+    @Spy
+    private AnalyticsProperties analyticsProperties = new AnalyticsProperties();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private DataRetentionService dataRetentionService;
+
+    @Test
+    void testPurgeExpiredData_DropsPartitionsBeforeDeletingInChunks() {
+        when(activityRollupService.rolledUpBefore()).thenReturn(LocalDate.of(2026, 10, 18));
+        analyticsProperties.getRetention().setDeleteChunkSize(100);
+        analyticsProperties.getRetention().setChunkPauseMs(0);
+        when(retentionMapper.deleteReadingEventsBefore(RAW_CUTOFF, 100)).thenReturn(100, 100, 40);
+        when(retentionMapper.deleteDailyRollupsBefore(any())).thenReturn(2);
+
+        dataRetentionService.purgeExpiredData(LocalDate.of(2026, 10, 18));
+
+        InOrder inOrder = inOrder(retentionMapper, partitionManager);
+        inOrder.verify(partitionManager).dropPartitionsBefore(LocalDate.of(2026, 7, 20));
+        inOrder.verify(retentionMapper, times(3)).deleteReadingEventsBefore(RAW_CUTOFF, 100);
+        verify(retentionMapper).deleteHourlyRollupsBefore(RAW_CUTOFF);
+        verify(retentionMapper).deleteDailyRollupsBefore(Date.valueOf("2025-10-18"));
+        verify(retentionMapper).deleteWeeklyRollupsBefore(Date.valueOf("2025-10-18"));
+        verify(retentionMapper).deleteMonthlyRollupsBefore(Date.valueOf("2025-10-18"));
+
+        assertEquals(240, meterRegistry.get("analytics.retention.rows.purged").tag("table", "reading_event")
+                .counter().count());
+        assertEquals(1, meterRegistry.get("analytics.retention.duration").timer().count());
+    }
+
+    @Test
+    void testPurgeExpiredData_StopsAtChunkLimit() {
+        when(activityRollupService.rolledUpBefore()).thenReturn(LocalDate.of(2026, 10, 18));
+        analyticsProperties.getRetention().setDeleteChunkSize(10);
+        analyticsProperties.getRetention().setChunkPauseMs(0);
+        analyticsProperties.getRetention().setMaxChunksPerRun(2);
+        when(retentionMapper.deleteReadingEventsBefore(any(), eq(10))).thenReturn(10);
+
+        dataRetentionService.purgeExpiredData(LocalDate.of(2026, 10, 18));
+
+        verify(retentionMapper, times(2)).deleteReadingEventsBefore(any(), eq(10));
+    }
+
+    @Test
+    void testPurgeExpiredData_KeepsEventsThatAreNotRolledUpYet() {
+        // The weekly or monthly rollup lags behind the raw cutoff
+        when(activityRollupService.rolledUpBefore()).thenReturn(LocalDate.of(2026, 7, 1));
+        analyticsProperties.getRetention().setChunkPauseMs(0);
+
+        dataRetentionService.purgeExpiredData(LocalDate.of(2026, 10, 18));
+
+        Timestamp rolledUpBefore = Timestamp.valueOf("2026-07-01 00:00:00");
+        verify(partitionManager).dropPartitionsBefore(LocalDate.of(2026, 7, 1));
+        verify(retentionMapper).deleteReadingEventsBefore(eq(rolledUpBefore), anyInt());
+        verify(retentionMapper).deleteHourlyRollupsBefore(rolledUpBefore);
+    }
+
+    @Test
+    void testPurgeExpiredData_KeepsAllEventsBeforeEveryGrainHasRun() {
+        when(activityRollupService.rolledUpBefore()).thenReturn(null);
+
+        dataRetentionService.purgeExpiredData(LocalDate.of(2026, 10, 18));
+
+        verify(partitionManager, never()).dropPartitionsBefore(any());
+        verify(retentionMapper, never()).deleteReadingEventsBefore(any(), anyInt());
+        verify(retentionMapper).deleteDailyRollupsBefore(Date.valueOf("2025-10-18"));
+    }
+}
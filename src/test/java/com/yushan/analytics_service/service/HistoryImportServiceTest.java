@@ -0,0 +1,120 @@
+package com.yushan.analytics_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yushan.analytics_service.dao.HistoryMapper;
+import com.yushan.analytics_service.dao.ReadingEventMapper;
+import com.yushan.analytics_service.dto.HistoryImportResultDTO;
+import com.yushan.analytics_service.enums.HistoryImportFormat;
+import com.yushan.analytics_service.exception.ValidationException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryImportServiceTest {
+
+    private static final UUID USER_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    @Mock
+    private HistoryMapper historyMapper;
+
+    @Mock
+    private ReadingEventMapper readingEventMapper;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private ActiveUserSketchService activeUserSketchService;
+
+    @Mock
+    private ActivityRollupService activityRollupService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private HistoryImportService historyImportService;
+
+    @Mock
+    private CopyIn copyIn;
+
+    private final ByteArrayOutputStream copied = new ByteArrayOutputStream();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Connection connection = mock(Connection.class);
+        PGConnection pgConnection = mock(PGConnection.class);
+        CopyManager copyManager = mock(CopyManager.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(copyManager.copyIn(startsWith("COPY history_import"))).thenReturn(copyIn);
+        lenient().doAnswer(invocation -> {
+            copied.write(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+            return null;
+        }).when(copyIn).writeToCopy(any(byte[].class), anyInt(), anyInt());
+    }
+
+    @Test
+    void testImportHistory_StreamsNdjsonAsCsvThenMerges() throws Exception {
+        String body = "{\"userId\":\"" + USER_ID + "\",\"novelId\":7,\"chapterId\":70,\"readAt\":1000}\n"
+                + "\n"
+                + "{\"userId\":\"" + USER_ID + "\",\"novelId\":8,\"chapterId\":80,\"readAt\":2000,\"source\":\"legacy\"}\n";
+        when(copyIn.endCopy()).thenReturn(2L);
+        when(historyMapper.mergeImportStaging()).thenReturn(2);
+
+        HistoryImportResultDTO result = historyImportService.importHistory(stream(body), HistoryImportFormat.NDJSON);
+
+        assertEquals(USER_ID + ",7,70," + new Timestamp(1000) + "\n"
+                + USER_ID + ",8,80," + new Timestamp(2000) + "\n", copied.toString(StandardCharsets.UTF_8));
+        assertEquals(2, result.getRowsLoaded());
+        assertEquals(2, result.getRowsMerged());
+        verify(historyMapper).createImportStagingTable();
+        verify(readingEventMapper).insertFromImportStaging();
+    }
+
+    @Test
+    void testImportHistory_SkipsCsvHeaderAndRejectsMalformedNdjson() throws Exception {
+        when(copyIn.endCopy()).thenReturn(1L);
+        when(copyIn.isActive()).thenReturn(false, true);
+
+        historyImportService.importHistory(stream(HistoryImportService.CSV_HEADER + "\n"
+                + USER_ID + ",7,70,2024-01-01 10:00:00\n"), HistoryImportFormat.CSV);
+        assertEquals(USER_ID + ",7,70,2024-01-01 10:00:00\n", copied.toString(StandardCharsets.UTF_8));
+
+        ValidationException error = assertThrows(ValidationException.class, () -> historyImportService.importHistory(
+                stream("{\"userId\":\"" + USER_ID + "\",\"novelId\":7}\n"), HistoryImportFormat.NDJSON));
+        assertTrue(error.getMessage().contains("line 1"));
+        verify(copyIn).cancelCopy();
+        verify(historyMapper, times(1)).mergeImportStaging();
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
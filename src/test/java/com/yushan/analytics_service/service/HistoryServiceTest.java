@@ -0,0 +1,172 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.dao.HistoryMapper;
+import com.yushan.analytics_service.dao.ReadingEventMapper;
+import com.yushan.analytics_service.dto.*;
+import com.yushan.analytics_service.entity.History;
+import com.yushan.analytics_service.exception.ValidationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryServiceTest {
+
+    @Mock
+    private HistoryMapper historyMapper;
+
+    @Mock
+    private ReadingEventMapper readingEventMapper;
+
+    @Mock
+    private ContentMetadataCache contentMetadataCache;
+
+    @Mock
+    private LibraryService libraryService;
+
+    @Mock
+    private HistoryWriteBuffer historyWriteBuffer;
+
+    @Mock
+    private HistoryValidationCache historyValidationCache;
+
+    @Mock
+    private ActiveUserSketchService activeUserSketchService;
+
+    @Mock
+    private ActivityRollupService activityRollupService;
+
+    @InjectMocks
+    private HistoryService historyService;
+
+    @Test
+    void testAddOrUpdateHistory_ValidatesAndSubmitsToWriteBuffer() {
+        UUID userId = UUID.randomUUID();
+        when(historyValidationCache.isKnownUser(userId)).thenReturn(true);
+        when(historyValidationCache.isKnownNovel(7)).thenReturn(true);
+        when(historyValidationCache.findChapterNovelId(70)).thenReturn(Optional.of(7));
+
+        historyService.addOrUpdateHistory(userId, 7, 70);
+
+        verify(historyWriteBuffer).submit(userId, 7, 70);
+        verifyNoInteractions(historyMapper, contentMetadataCache);
+    }
+
+    @Test
+    void testAddOrUpdateHistory_RejectsChapterOfAnotherNovel() {
+        UUID userId = UUID.randomUUID();
+        when(historyValidationCache.isKnownUser(userId)).thenReturn(true);
+        when(historyValidationCache.isKnownNovel(7)).thenReturn(true);
+        when(historyValidationCache.findChapterNovelId(90)).thenReturn(Optional.of(9));
+
+        assertThrows(ValidationException.class, () -> historyService.addOrUpdateHistory(userId, 7, 90));
+        verifyNoInteractions(historyWriteBuffer);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRecordReads_KeepsLatestReadPerUserAndNovelButLogsEveryRead() {
+        UUID userId = UUID.randomUUID();
+        History older = read(userId, 7, 70, 1_000L);
+        History newer = read(userId, 7, 72, 2_000L);
+        History other = read(userId, 8, 80, 1_500L);
+
+        historyService.recordReads(List.of(newer, older, other));
+
+        ArgumentCaptor<List<History>> captor = ArgumentCaptor.forClass(List.class);
+        verify(historyMapper).batchUpsert(captor.capture());
+        List<History> written = captor.getValue();
+        assertEquals(2, written.size());
+        assertEquals(72, written.get(0).getChapterId());
+        assertEquals(80, written.get(1).getChapterId());
+        verify(readingEventMapper).batchInsert(argThat(events -> events.size() == 3));
+    }
+
+    @Test
+    void testRecordReads_AddsReadersToSketchesOnlyAfterCommit() {
+        History read = read(UUID.randomUUID(), 7, 70, 1_000L);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            historyService.recordReads(List.of(read));
+
+            verifyNoInteractions(activeUserSketchService);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(activeUserSketchService).recordReads(List.of(read));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testGetUserHistoryByCursor_ReturnsNextCursorFromLastRowWithoutCounting() {
+        UUID userId = UUID.randomUUID();
+        History first = read(userId, 7, 70, 3_000L);
+        first.setId(30);
+        History second = read(userId, 8, 80, 2_000L);
+        second.setId(20);
+        History extra = read(userId, 9, 90, 1_000L);
+        extra.setId(10);
+        when(historyMapper.selectByUserIdAfterCursor(userId, null, null, 3))
+                .thenReturn(new ArrayList<>(List.of(first, second, extra)));
+        when(libraryService.checkNovelsInLibrary(eq(userId), anyList())).thenReturn(Map.of());
+
+        CursorPageResponseDTO<HistoryResponseDTO> page = historyService.getUserHistoryByCursor(userId, null, 2, false);
+
+        assertEquals(2, page.getContent().size());
+        assertTrue(page.isHasNext());
+        assertNull(page.getTotalElements());
+        verify(historyMapper, never()).countByUserId(any());
+
+        historyService.getUserHistoryByCursor(userId, page.getNextCursor(), 2, false);
+        verify(historyMapper).selectByUserIdAfterCursor(userId, new Date(2_000L), 20, 3);
+    }
+
+    @Test
+    void testGetUserHistory_DegradesToPartialDtosWhenALookupTimesOut() {
+        UUID userId = UUID.randomUUID();
+        ReflectionTestUtils.setField(historyService, "enrichmentTimeoutMs", 100L);
+        History history = read(userId, 7, 70, 1_000L);
+        when(historyMapper.countByUserId(userId)).thenReturn(1L);
+        when(historyMapper.selectByUserIdWithPagination(userId, 0, 20)).thenReturn(List.of(history));
+
+        NovelDetailResponseDTO novel = new NovelDetailResponseDTO();
+        novel.setId(7);
+        novel.setTitle("Novel");
+        when(contentMetadataCache.getNovels(List.of(7))).thenReturn(Map.of(7, novel));
+        when(contentMetadataCache.getChapters(List.of(70))).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return null;
+        });
+        when(libraryService.checkNovelsInLibrary(userId, List.of(7))).thenReturn(Map.of(7, true));
+
+        long start = System.nanoTime();
+        PageResponseDTO<HistoryResponseDTO> page = historyService.getUserHistory(userId, 0, 20);
+
+        assertTrue(System.nanoTime() - start < 2_000_000_000L);
+        HistoryResponseDTO dto = page.getContent().get(0);
+        assertEquals("Novel", dto.getNovelTitle());
+        assertNull(dto.getChapterNumber());
+        assertTrue(dto.isInLibrary());
+    }
+
+    private static History read(UUID userId, int novelId, int chapterId, long time) {
+        History read = new History();
+        read.setUserId(userId);
+        read.setNovelId(novelId);
+        read.setChapterId(chapterId);
+        read.setUpdateTime(new Date(time));
+        return read;
+    }
+}
@@ -0,0 +1,80 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.client.CoalescingContentClient;
+import com.yushan.analytics_service.client.UserServiceClient;
+import com.yushan.analytics_service.dto.ApiResponse;
+import com.yushan.analytics_service.dto.ChapterDTO;
+import com.yushan.analytics_service.dto.UserProfileResponseDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class HistoryValidationCacheTest {
+
+    private HistoryValidationCache cache;
+    private UserServiceClient userServiceClient;
+    private CoalescingContentClient coalescingContentClient;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        cache = new HistoryValidationCache();
+        userServiceClient = mock(UserServiceClient.class);
+        coalescingContentClient = mock(CoalescingContentClient.class);
+        meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(cache, "userServiceClient", userServiceClient);
+        ReflectionTestUtils.setField(cache, "coalescingContentClient", coalescingContentClient);
+        ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+        cache.init();
+    }
+
+    @Test
+    void testIsKnownUser_WarmHitSkipsRemoteCall() {
+        UUID userId = UUID.randomUUID();
+        ApiResponse<UserProfileResponseDTO> response = new ApiResponse<>();
+        response.setCode(200);
+        response.setData(new UserProfileResponseDTO());
+        when(userServiceClient.getUser(userId)).thenReturn(response);
+
+        assertTrue(cache.isKnownUser(userId));
+        assertTrue(cache.isKnownUser(userId));
+
+        verify(userServiceClient, times(1)).getUser(userId);
+        assertEquals(1, meterRegistry.get("cache.gets")
+                .tags("cache", "history.validation.user", "result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void testIsKnownNovel_CachesNotFound() {
+        when(coalescingContentClient.getNovel(7)).thenReturn(null);
+
+        assertFalse(cache.isKnownNovel(7));
+        assertFalse(cache.isKnownNovel(7));
+
+        verify(coalescingContentClient, times(1)).getNovel(7);
+    }
+
+    @Test
+    void testFindChapterNovelId_DoesNotCacheRemoteFailures() {
+        ChapterDTO chapter = new ChapterDTO();
+        chapter.setId(70);
+        chapter.setNovelId(7);
+        when(coalescingContentClient.getChapter(70))
+                .thenThrow(new RuntimeException("connection refused"))
+                .thenReturn(chapter);
+
+        assertEquals(Optional.empty(), cache.findChapterNovelId(70));
+        assertEquals(Optional.of(7), cache.findChapterNovelId(70));
+        assertEquals(Optional.of(7), cache.findChapterNovelId(70));
+
+        verify(coalescingContentClient, times(2)).getChapter(70);
+    }
+}
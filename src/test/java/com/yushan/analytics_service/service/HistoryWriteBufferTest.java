@@ -0,0 +1,133 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.dao.HistoryMapper;
+import com.yushan.analytics_service.dao.ReadingEventMapper;
+import com.yushan.analytics_service.entity.History;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class HistoryWriteBufferTest {
+
+    private HistoryWriteBuffer buffer;
+    private HistoryMapper historyMapper;
+    private ReadingEventMapper readingEventMapper;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new HistoryWriteBuffer();
+        historyMapper = mock(HistoryMapper.class);
+        readingEventMapper = mock(ReadingEventMapper.class);
+        meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(buffer, "historyMapper", historyMapper);
+        ReflectionTestUtils.setField(buffer, "readingEventMapper", readingEventMapper);
+        ReflectionTestUtils.setField(buffer, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(buffer, "activeUserSketchService", mock(ActiveUserSketchService.class));
+        ReflectionTestUtils.setField(buffer, "activityRollupService", mock(ActivityRollupService.class));
+        ReflectionTestUtils.setField(buffer, "meterRegistry", meterRegistry);
+        // Keep the background flusher out of the way; tests flush explicitly
+        ReflectionTestUtils.setField(buffer, "flushIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(buffer, "maxPending", 3);
+        buffer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        buffer.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_CoalescesWritesPerUserAndNovel() {
+        ReflectionTestUtils.setField(buffer, "maxPending", 10);
+        UUID userId = UUID.randomUUID();
+        buffer.submit(userId, 7, 70);
+        buffer.submit(userId, 7, 71);
+        buffer.submit(userId, 7, 72);
+        buffer.submit(userId, 8, 80);
+        assertEquals(2, buffer.depth());
+
+        assertEquals(2, buffer.flush());
+
+        ArgumentCaptor<List<History>> captor = ArgumentCaptor.forClass(List.class);
+        verify(historyMapper).batchUpsert(captor.capture());
+        assertTrue(captor.getValue().stream().anyMatch(h -> h.getNovelId() == 7 && h.getChapterId() == 72));
+        // The event log keeps every read, not only the latest
+        ArgumentCaptor<List<History>> events = ArgumentCaptor.forClass(List.class);
+        verify(readingEventMapper).batchInsert(events.capture());
+        assertEquals(4, events.getValue().size());
+        assertEquals(0, buffer.depth());
+        assertEquals(2.0, meterRegistry.summary("history.buffer.coalesce.ratio").mean());
+    }
+
+    @Test
+    void testFlush_RequeuesRowsWhenUpsertFails() {
+        doThrow(new RuntimeException("db down")).when(historyMapper).batchUpsert(anyList());
+        buffer.submit(UUID.randomUUID(), 7, 70);
+
+        assertThrows(RuntimeException.class, () -> buffer.flush());
+        assertEquals(1, buffer.depth());
+
+        // The rolled back events are written again with the retried row
+        doReturn(1).when(historyMapper).batchUpsert(anyList());
+        assertEquals(1, buffer.flush());
+        verify(readingEventMapper, times(2)).batchInsert(argThat(events -> events.size() == 1));
+    }
+
+    @Test
+    void testSubmit_FlushesInlineWhenBufferIsFull() {
+        UUID userId = UUID.randomUUID();
+        buffer.submit(userId, 1, 10);
+        buffer.submit(userId, 2, 20);
+        buffer.submit(userId, 3, 30);
+        verify(historyMapper, never()).batchUpsert(anyList());
+
+        buffer.submit(userId, 4, 40);
+
+        verify(historyMapper).batchUpsert(anyList());
+        assertEquals(1, buffer.depth());
+    }
+
+    @Test
+    void testDiscardPending_DropsOnlyTheUsersRows() {
+        UUID userId = UUID.randomUUID();
+        buffer.submit(userId, 1, 10);
+        buffer.submit(userId, 2, 20);
+        buffer.submit(UUID.randomUUID(), 1, 10);
+
+        assertEquals(1, buffer.discardPending(userId, 2));
+        assertEquals(1, buffer.discardPending(userId, null));
+        assertEquals(1, buffer.depth());
+    }
+
+    @Test
+    void testSubmit_WritesThroughWithTheGuardedUpsertAfterShutdown() {
+        UUID userId = UUID.randomUUID();
+        buffer.submit(userId, 1, 10);
+        buffer.shutdown();
+        verify(historyMapper).batchUpsert(argThat(rows -> rows.size() == 1 && rows.get(0).getChapterId() == 10));
+
+        buffer.submit(userId, 1, 11);
+
+        verify(historyMapper).batchUpsert(argThat(rows -> rows.size() == 1 && rows.get(0).getChapterId() == 11));
+        verify(historyMapper, never()).upsert(any());
+        assertEquals(0, buffer.depth());
+    }
+}
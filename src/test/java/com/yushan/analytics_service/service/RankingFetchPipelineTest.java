@@ -0,0 +1,127 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.dto.PageResponseDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankingFetchPipelineTest {
+
+    private RankingFetchPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new RankingFetchPipeline();
+        ReflectionTestUtils.setField(pipeline, "concurrency", 3);
+        ReflectionTestUtils.setField(pipeline, "maxRetries", 2);
+        ReflectionTestUtils.setField(pipeline, "retryBackoffMs", 1L);
+    }
+
+    @Test
+    void testFetchAllPages_MergesInPageOrderWithinConcurrencyCap() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        List<Integer> result = pipeline.fetchAllPages("numbers", page -> {
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return page(page, 10, 95);
+        }, 100);
+
+        assertEquals(IntStream.range(0, 95).boxed().collect(Collectors.toList()), result);
+        assertTrue(maxInFlight.get() <= 3, "at most 3 requests in flight, saw " + maxInFlight.get());
+    }
+
+    @Test
+    void testFetchAllPages_RetriesFailedPages() {
+        ConcurrentHashMap<Integer, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+        List<Integer> result = pipeline.fetchAllPages("numbers", page -> {
+            int attempt = attempts.computeIfAbsent(page, p -> new AtomicInteger()).incrementAndGet();
+            if (page == 2 && attempt < 3) {
+                return null;
+            }
+            return page(page, 10, 40);
+        }, 100);
+
+        assertEquals(40, result.size());
+        assertEquals(3, attempts.get(2).get());
+    }
+
+    @Test
+    void testFetchAllPages_FailsWhenRetriesExhausted() {
+        assertThrows(IllegalStateException.class, () -> pipeline.fetchAllPages("numbers", page -> {
+            if (page == 1) {
+                throw new RuntimeException("boom");
+            }
+            return page(page, 10, 40);
+        }, 100));
+    }
+
+    @Test
+    void testFetchAllPages_SkipsRemainingPagesAfterAFailure() {
+        ReflectionTestUtils.setField(pipeline, "concurrency", 1);
+        AtomicInteger failingCalls = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> pipeline.fetchAllPages("numbers", page -> {
+            if (page == 0) {
+                return page(page, 10, 200);
+            }
+            failingCalls.incrementAndGet();
+            throw new RuntimeException("boom");
+        }, 100));
+
+        // Only the first page to get the permit is tried (three attempts); the other 18 never call out
+        assertEquals(3, failingCalls.get());
+    }
+
+    @Test
+    void testForEachPage_StreamsEveryPageWithoutConcurrentConsumers() {
+        AtomicInteger consuming = new AtomicInteger();
+        List<Integer> seen = new ArrayList<>();
+
+        long count = pipeline.forEachPage("numbers", page -> page(page, 10, 95), 100, content -> {
+            assertEquals(1, consuming.incrementAndGet(), "consumer must not be called concurrently");
+            seen.addAll(content);
+            consuming.decrementAndGet();
+        });
+
+        assertEquals(95, count);
+        seen.sort(null);
+        assertEquals(IntStream.range(0, 95).boxed().collect(Collectors.toList()), seen);
+    }
+
+    @Test
+    void testFetchInBatches_SkipsFailedBatch() {
+        List<Integer> items = IntStream.range(0, 25).boxed().collect(Collectors.toList());
+
+        List<Integer> result = pipeline.fetchInBatches("items", items, 10,
+                batch -> batch.contains(10) ? null : batch);
+
+        List<Integer> expected = new ArrayList<>(items.subList(0, 10));
+        expected.addAll(items.subList(20, 25));
+        assertEquals(expected, result);
+    }
+
+    private static PageResponseDTO<Integer> page(int page, int size, int total) {
+        List<Integer> content = IntStream.range(page * size, Math.min((page + 1) * size, total))
+                .boxed()
+                .collect(Collectors.toList());
+        return PageResponseDTO.of(content, total, page, size);
+    }
+}
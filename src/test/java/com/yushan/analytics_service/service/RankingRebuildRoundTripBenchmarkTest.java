@@ -0,0 +1,166 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.client.ContentServiceClient;
+import com.yushan.analytics_service.client.GamificationServiceClient;
+import com.yushan.analytics_service.client.UserServiceClient;
+import com.yushan.analytics_service.dto.ApiResponse;
+import com.yushan.analytics_service.dto.NovelDetailResponseDTO;
+import com.yushan.analytics_service.dto.PageResponseDTO;
+import com.yushan.analytics_service.dto.UserProfileResponseDTO;
+import com.yushan.analytics_service.util.RedisUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.invocation.Invocation;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Counts Redis round-trips issued by a full ranking rebuild of a synthetic catalogue.
+ * Every RedisUtil call is one round-trip. A write path with one ZADD per ranked member is not run here;
+ * its cost is estimated from the members written plus the other calls.
+ * The novel rebuild streams the catalogue, so it costs one pipelined write per fetched page.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RankingRebuildRoundTripBenchmarkTest {
+
+    private static final int NOVELS = 10_000;
+    private static final int PAGE_SIZE = 100;
+    private static final int CATEGORIES = 20;
+    private static final int AUTHORS = 500;
+    private static final int USERS = 2_000;
+
+    @Mock
+    private ContentServiceClient contentServiceClient;
+
+    @Mock
+    private UserServiceClient userServiceClient;
+
+    @Mock
+    private GamificationServiceClient gamificationServiceClient;
+
+    @Mock
+    private RedisUtil redisUtil;
+
+    @Spy
+    private RankingFetchPipeline fetchPipeline = new RankingFetchPipeline();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private RankingUpdateService rankingUpdateService;
+
+    @Test
+    void rebuildRoundTrips() {
+        List<UUID> authors = new ArrayList<>();
+        for (int i = 0; i < AUTHORS; i++) {
+            authors.add(UUID.randomUUID());
+        }
+        when(contentServiceClient.getNovels(anyInt(), anyInt(), anyString(), anyString()))
+                .thenAnswer(invocation -> novelPage(invocation.getArgument(0), authors));
+        when(userServiceClient.getAllUsersForRanking(anyInt(), anyInt(), anyString(), anyString()))
+                .thenAnswer(invocation -> userPage(invocation.getArgument(0)));
+        when(gamificationServiceClient.getBatchUsersStats(anyList()))
+                .thenAnswer(invocation -> statsFor(invocation.getArgument(0)));
+
+        rankingUpdateService.updateAllRankings();
+
+        long roundTrips = 0;
+        long membersWritten = 0;
+        long otherCalls = 0;
+        for (Invocation invocation : Mockito.mockingDetails(redisUtil).getInvocations()) {
+            roundTrips++;
+            String method = invocation.getMethod().getName();
+            if (method.startsWith("zAdd")) {
+                membersWritten += countMembers(invocation.getArguments());
+            } else {
+                otherCalls++;
+            }
+        }
+        long estimatedPerMemberRoundTrips = membersWritten + otherCalls;
+
+        // Every novel lands in an all-time and a category key for both views and votes
+        long expectedMembers = 4L * NOVELS + 3L * AUTHORS + USERS;
+        assertEquals(expectedMembers, membersWritten);
+        long novelPages = NOVELS / PAGE_SIZE;
+        assertTrue(roundTrips < novelPages + 20, "rebuild should need about one round-trip per page, was " + roundTrips);
+        assertTrue(roundTrips * 100 < estimatedPerMemberRoundTrips,
+                roundTrips + " round-trips against an estimated " + estimatedPerMemberRoundTrips + " per member");
+    }
+
+    private static long countMembers(Object[] arguments) {
+        long members = 0;
+        for (Object argument : arguments) {
+            if (argument instanceof Map<?, ?> map) {
+                for (Object tuples : map.values()) {
+                    members += ((Collection<?>) tuples).size();
+                }
+            } else if (argument instanceof Collection<?> tuples) {
+                members += tuples.size();
+            } else if (argument instanceof Double) {
+                members++;
+            }
+        }
+        return members;
+    }
+
+    private static ApiResponse<PageResponseDTO<NovelDetailResponseDTO>> novelPage(int page, List<UUID> authors) {
+        List<NovelDetailResponseDTO> novels = new ArrayList<>();
+        for (int i = page * PAGE_SIZE; i < Math.min((page + 1) * PAGE_SIZE, NOVELS); i++) {
+            NovelDetailResponseDTO novel = new NovelDetailResponseDTO();
+            novel.setId(i + 1);
+            novel.setCategoryId(i % CATEGORIES + 1);
+            novel.setAuthorId(authors.get(i % AUTHORS));
+            novel.setAuthorUsername("author-" + (i % AUTHORS));
+            novel.setViewCnt(i * 7);
+            novel.setVoteCnt(i * 3);
+            novels.add(novel);
+        }
+        PageResponseDTO<NovelDetailResponseDTO> data = PageResponseDTO.of(novels, NOVELS, page, PAGE_SIZE);
+        return ApiResponse.success("ok", data);
+    }
+
+    private static ApiResponse<PageResponseDTO<UserProfileResponseDTO>> userPage(int page) {
+        List<UserProfileResponseDTO> users = new ArrayList<>();
+        for (int i = page * PAGE_SIZE; i < Math.min((page + 1) * PAGE_SIZE, USERS); i++) {
+            UserProfileResponseDTO user = new UserProfileResponseDTO();
+            user.setUuid(new UUID(0, i).toString());
+            users.add(user);
+        }
+        PageResponseDTO<UserProfileResponseDTO> data = PageResponseDTO.of(users, USERS, page, PAGE_SIZE);
+        return ApiResponse.success("ok", data);
+    }
+
+    private static ApiResponse<List<GamificationServiceClient.GamificationStats>> statsFor(List<String> userIds) {
+        List<GamificationServiceClient.GamificationStats> stats = new ArrayList<>();
+        for (String userId : userIds) {
+            GamificationServiceClient.GamificationStats stat = new GamificationServiceClient.GamificationStats();
+            stat.userId = userId;
+            stat.level = 1;
+            stat.currentExp = userId.hashCode() & 0xFFFF;
+            stats.add(stat);
+        }
+        return ApiResponse.success("ok", stats);
+    }
+}
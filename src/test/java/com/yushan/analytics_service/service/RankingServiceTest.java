@@ -1,6 +1,5 @@
 package com.yushan.analytics_service.service;
 
-import com.yushan.analytics_service.client.ContentServiceClient;
 import com.yushan.analytics_service.client.GamificationServiceClient;
 import com.yushan.analytics_service.client.UserServiceClient;
 import com.yushan.analytics_service.dto.*;
@@ -11,6 +10,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
 
 import java.util.*;
 
@@ -22,7 +22,7 @@ import static org.mockito.Mockito.*;
 class RankingServiceTest {
 
     @Mock
-    private ContentServiceClient contentServiceClient;
+    private ContentMetadataCache contentMetadataCache;
 
     @Mock
     private UserServiceClient userServiceClient;
@@ -55,18 +55,11 @@ class RankingServiceTest {
 
     @Test
     void testRankNovel_Success() {
-        // Mock the content service response
-        PageResponseDTO<NovelDetailResponseDTO> pageData = new PageResponseDTO<>();
-        pageData.setContent(Arrays.asList(novelDTO));
-        pageData.setTotalElements(1);
-        pageData.setHasNext(false);
-        
-        ApiResponse<PageResponseDTO<NovelDetailResponseDTO>> response = new ApiResponse<>();
-        response.setCode(200);
-        response.setData(pageData);
-        
-        when(contentServiceClient.getNovels(anyInt(), anyInt(), anyString(), anyString()))
-                .thenReturn(response);
+        when(redisUtil.zCard("ranking:novel:view:all")).thenReturn(1L);
+        when(redisUtil.zReverseRangeWithScores("ranking:novel:view:all", 0, 19))
+                .thenReturn(List.of(TypedTuple.of("1", 1000.0)));
+
+        when(contentMetadataCache.getNovels(List.of(1))).thenReturn(Map.of(1, novelDTO));
 
         PageResponseDTO<NovelDetailResponseDTO> result = 
                 rankingService.rankNovel(0, 20, "view", null, null);
@@ -74,23 +67,52 @@ class RankingServiceTest {
         assertNotNull(result);
         assertNotNull(result.getContent());
         assertEquals(1, result.getTotalElements());
-        verify(contentServiceClient, atLeastOnce()).getNovels(anyInt(), anyInt(), anyString(), anyString());
+        assertEquals(1, result.getContent().get(0).getId());
+    }
+
+    @Test
+    void testRankNovel_CategoryVoteWindowKeepsRedisOrder() {
+        NovelDetailResponseDTO second = new NovelDetailResponseDTO();
+        second.setId(2);
+        second.setCategoryId(3);
+
+        when(redisUtil.zCard("ranking:novel:vote:3")).thenReturn(25L);
+        when(redisUtil.zReverseRangeWithScores("ranking:novel:vote:3", 10, 19))
+                .thenReturn(List.of(TypedTuple.of("2", 90.0), TypedTuple.of("1", 80.0)));
+
+        when(contentMetadataCache.getNovels(List.of(2, 1))).thenReturn(Map.of(1, novelDTO, 2, second));
+
+        PageResponseDTO<NovelDetailResponseDTO> result =
+                rankingService.rankNovel(1, 10, "vote", 3, null);
+
+        assertEquals(25, result.getTotalElements());
+        assertEquals(2, result.getContent().get(0).getId());
+        assertEquals(1, result.getContent().get(1).getId());
+    }
+
+    @Test
+    void testRankNovel_PageBeyondRanking() {
+        when(redisUtil.zCard("ranking:novel:view:all")).thenReturn(5L);
+
+        PageResponseDTO<NovelDetailResponseDTO> result =
+                rankingService.rankNovel(1, 10, "view", null, null);
+
+        assertTrue(result.getContent().isEmpty());
+        assertEquals(5, result.getTotalElements());
+        verify(contentMetadataCache, never()).getNovels(anyList());
     }
 
     @Test
     void testRankUser_Success() {
-        // Mock user service response
-        PageResponseDTO<UserProfileResponseDTO> pageData = new PageResponseDTO<>();
-        pageData.setContent(Arrays.asList(userDTO));
-        pageData.setTotalElements(1);
-        pageData.setHasNext(false);
-        
-        ApiResponse<PageResponseDTO<UserProfileResponseDTO>> userResponse = new ApiResponse<>();
+        UUID userId = UUID.fromString(userDTO.getUuid());
+        when(redisUtil.zCard("ranking:user:exp")).thenReturn(1L);
+        when(redisUtil.zReverseRangeWithScores("ranking:user:exp", 0, 0))
+                .thenReturn(List.of(TypedTuple.of(userDTO.getUuid(), 7 * 1000000.0 + 1520)));
+
+        ApiResponse<List<UserProfileResponseDTO>> userResponse = new ApiResponse<>();
         userResponse.setCode(200);
-        userResponse.setData(pageData);
-        
-        when(userServiceClient.getAllUsersForRanking(anyInt(), anyInt(), anyString(), anyString()))
-                .thenReturn(userResponse);
+        userResponse.setData(List.of(userDTO));
+        when(userServiceClient.getUsersBatch(List.of(userId))).thenReturn(userResponse);
 
         PageResponseDTO<UserProfileResponseDTO> result = 
                 rankingService.rankUser(0, 20, "overall");
@@ -99,20 +121,44 @@ class RankingServiceTest {
         assertNotNull(result.getContent());
         assertEquals(1, result.getContent().size());
         
-        // Verify that level and exp are hardcoded (first user should be level 9)
+        // Level and exp are decoded from the packed ranking score
         UserProfileResponseDTO firstUser = result.getContent().get(0);
-        assertNotNull(firstUser.getLevel());
-        assertNotNull(firstUser.getCurrentExp());
+        assertEquals(7, firstUser.getLevel());
+        assertEquals(1520, firstUser.getCurrentExp());
         
-        verify(userServiceClient, atLeastOnce()).getAllUsersForRanking(anyInt(), anyInt(), anyString(), anyString());
+        verify(userServiceClient, times(1)).getUsersBatch(anyList());
+        verify(userServiceClient, never()).getAllUsersForRanking(anyInt(), anyInt(), anyString(), anyString());
+    }
+
+    @Test
+    void testRankAuthor_ServesPageFromSortedSets() {
+        String first = UUID.randomUUID().toString();
+        String second = UUID.randomUUID().toString();
+        when(redisUtil.zCard("ranking:author:view")).thenReturn(2L);
+        when(redisUtil.zReverseRangeWithScores("ranking:author:view", 0, 9))
+                .thenReturn(List.of(TypedTuple.of(first, 900.0), TypedTuple.of(second, 100.0)));
+        when(redisUtil.zScores("ranking:author:vote", List.of(first, second))).thenReturn(Arrays.asList(50.0, null));
+        when(redisUtil.zScores("ranking:author:view", List.of(first, second))).thenReturn(List.of(900.0, 100.0));
+        when(redisUtil.zScores("ranking:author:novelNum", List.of(first, second))).thenReturn(List.of(3.0, 1.0));
+        when(redisUtil.hMultiGet("ranking:author:profile", List.of(first, second)))
+                .thenReturn(Arrays.asList("alice", null));
+
+        PageResponseDTO<AuthorResponseDTO> result = rankingService.rankAuthor(0, 10, "view", "overall");
+
+        assertEquals(2, result.getTotalElements());
+        AuthorResponseDTO top = result.getContent().get(0);
+        assertEquals(first, top.getUuid());
+        assertEquals("alice", top.getUsername());
+        assertEquals(900, top.getTotalViewCnt());
+        assertEquals(50, top.getTotalVoteCnt());
+        assertEquals(3, top.getNovelNum());
+        assertEquals(0, result.getContent().get(1).getTotalVoteCnt());
+        verifyNoInteractions(contentMetadataCache);
     }
 
     @Test
     void testGetBestNovelRank_Success() {
-        ApiResponse<NovelDetailResponseDTO> response = new ApiResponse<>();
-        response.setCode(200);
-        response.setData(novelDTO);
-        when(contentServiceClient.getNovelById(1)).thenReturn(response);
+        when(contentMetadataCache.getNovel(1)).thenReturn(novelDTO);
         when(redisUtil.zReverseRank(anyString(), anyString())).thenReturn(0L);
         when(redisUtil.zScore(anyString(), anyString())).thenReturn(1000.0);
 
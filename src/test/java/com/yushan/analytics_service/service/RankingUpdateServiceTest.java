@@ -0,0 +1,128 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.client.ContentServiceClient;
+import com.yushan.analytics_service.client.GamificationServiceClient;
+import com.yushan.analytics_service.client.UserServiceClient;
+import com.yushan.analytics_service.dto.*;
+import com.yushan.analytics_service.util.RedisUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RankingUpdateServiceTest {
+
+    private static final UUID AUTHOR_ID = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+
+    @Mock
+    private ContentServiceClient contentServiceClient;
+
+    @Mock
+    private UserServiceClient userServiceClient;
+
+    @Mock
+    private GamificationServiceClient gamificationServiceClient;
+
+    @Mock
+    private RedisUtil redisUtil;
+
+    @Spy
+    private RankingFetchPipeline fetchPipeline = new RankingFetchPipeline();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private RankingUpdateService rankingUpdateService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testApplyNovelDeltas_SumsDeltasIntoOnePipelinedIncrement() {
+        rankingUpdateService.applyNovelDeltas(List.of(
+                new NovelRankingDeltaDTO(1, 5, AUTHOR_ID, "author", 3, 1),
+                new NovelRankingDeltaDTO(1, 5, AUTHOR_ID, null, 2, 0)));
+
+        ArgumentCaptor<Map<String, Map<String, Double>>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(redisUtil).zIncrementAllPipelined(captor.capture());
+        Map<String, Map<String, Double>> increments = captor.getValue();
+
+        assertEquals(Map.of("1", 5.0), increments.get("ranking:novel:view:all"));
+        assertEquals(Map.of("1", 1.0), increments.get("ranking:novel:vote:all"));
+        assertEquals(Map.of("1", 5.0), increments.get("ranking:novel:view:5"));
+        assertEquals(Map.of(AUTHOR_ID.toString(), 5.0), increments.get("ranking:author:view"));
+        assertFalse(increments.containsKey("ranking:author:novelNum"));
+        verify(redisUtil).hPutAll("ranking:author:profile", Map.of(AUTHOR_ID.toString(), "author"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReconcileNovelRankings_WritesOnlyDriftAndRemovesStaleMembers() {
+        ApiResponse<PageResponseDTO<NovelDetailResponseDTO>> page = new ApiResponse<>();
+        page.setCode(200);
+        page.setData(PageResponseDTO.of(List.of(novel(1, 10, 2), novel(2, 5, 1)), 2, 0, 100));
+        when(contentServiceClient.getNovels(anyInt(), anyInt(), anyString(), anyString())).thenReturn(page);
+
+        Map<String, Map<String, Double>> live = new HashMap<>();
+        live.put("ranking:novel:view:all", Map.of("1", 10.0, "2", 4.0));
+        live.put("ranking:novel:vote:all", Map.of("1", 2.0, "2", 1.0));
+        live.put("ranking:novel:view:1", Map.of("1", 10.0, "2", 5.0));
+        live.put("ranking:novel:vote:1", Map.of("1", 2.0, "2", 1.0));
+        live.put("ranking:author:view", Map.of(AUTHOR_ID.toString(), 15.0));
+        live.put("ranking:author:vote", Map.of(AUTHOR_ID.toString(), 3.0));
+        live.put("ranking:author:novelNum", Map.of(AUTHOR_ID.toString(), 2.0));
+        when(redisUtil.zScoresPipelined(anyMap())).thenAnswer(invocation -> {
+            Map<String, List<String>> membersByKey = invocation.getArgument(0);
+            Map<String, List<Double>> scores = new HashMap<>();
+            membersByKey.forEach((key, members) -> {
+                List<Double> keyScores = new ArrayList<>();
+                members.forEach(member -> keyScores.add(live.getOrDefault(key, Map.of()).get(member)));
+                scores.put(key, keyScores);
+            });
+            return scores;
+        });
+        when(redisUtil.keys("ranking:novel:*")).thenReturn(new HashSet<>(List.of(
+                "ranking:novel:view:all", "ranking:novel:vote:all", "ranking:novel:view:1",
+                "ranking:novel:vote:1", "ranking:novel:view:9")));
+        when(redisUtil.zMembers(anyString())).thenReturn(Set.of());
+        when(redisUtil.zMembers("ranking:novel:view:all")).thenReturn(Set.of("1", "2", "3"));
+
+        rankingUpdateService.reconcileNovelRankings();
+
+        ArgumentCaptor<Map<String, List<TypedTuple<Object>>>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(redisUtil, atLeastOnce()).zAddAllPipelined(captor.capture());
+        Map<String, List<TypedTuple<Object>>> written = new HashMap<>();
+        captor.getAllValues().forEach(written::putAll);
+        assertEquals(Set.of("ranking:novel:view:all"), written.keySet());
+        assertEquals(List.of(RedisUtil.tuple("2", 5.0)), written.get("ranking:novel:view:all"));
+
+        verify(redisUtil).zRemove("ranking:novel:view:all", List.of("3"));
+        verify(redisUtil).delete(List.of("ranking:novel:view:9"));
+        verify(redisUtil, never()).renameAll(anyMap(), anyCollection());
+        assertEquals(1, meterRegistry.counter("ranking.reconcile.corrections",
+                "ranking", "novel", "type", "score").count());
+    }
+
+    private static NovelDetailResponseDTO novel(int id, int views, int votes) {
+        NovelDetailResponseDTO novel = new NovelDetailResponseDTO();
+        novel.setId(id);
+        novel.setCategoryId(1);
+        novel.setAuthorId(AUTHOR_ID);
+        novel.setAuthorUsername("author");
+        novel.setViewCnt(views);
+        novel.setVoteCnt(votes);
+        return novel;
+    }
+}
@@ -0,0 +1,89 @@
+package com.yushan.analytics_service.service;
+
+import com.yushan.analytics_service.config.AnalyticsProperties;
+import com.yushan.analytics_service.dao.PartitionMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadingEventPartitionManagerTest {
+
+    @Mock
+    private PartitionMapper partitionMapper;
+
+    @Spy
+    private AnalyticsProperties analyticsProperties = new AnalyticsProperties();
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private ReadingEventPartitionManager partitionManager;
+
+    @BeforeEach
+    void setUp() {
+        when(partitionMapper.selectPartitionNames("reading_event")).thenReturn(List.of(
+                "reading_event_p202401", "reading_event_p202607", "reading_event_p202610", "reading_event_default"));
+    }
+
+    @Test
+    void testMaintainPartitions_CreatesMissingUpcomingMonths() {
+        partitionManager.maintainPartitions(LocalDate.of(2026, 10, 18));
+
+        verify(partitionMapper, never()).createRangePartition(any(), eq("reading_event_p202610"), any(), any());
+        verify(partitionMapper).createRangePartition("reading_event", "reading_event_p202611", "2026-11-01", "2026-12-01");
+        verify(partitionMapper).createRangePartition("reading_event", "reading_event_p202701", "2027-01-01", "2027-02-01");
+        verify(partitionMapper, times(3)).createRangePartition(any(), any(), any(), any());
+        verify(partitionMapper, never()).dropTable(any());
+        assertEquals(3, meterRegistry.get("analytics.partitions.created").counter().count());
+    }
+
+    @Test
+    void testMaintainPartitions_MovesRowsOutOfTheDefaultPartitionAndKeepsGoingAfterAFailure() {
+        when(partitionMapper.existsRowsInRange("reading_event_default", "event_time", "2026-11-01", "2026-12-01"))
+                .thenReturn(true);
+        when(partitionMapper.moveRowsInRange("reading_event_default", "reading_event_p202611", "event_time",
+                "2026-11-01", "2026-12-01")).thenReturn(4);
+        doThrow(new RuntimeException("lock timeout")).when(partitionMapper)
+                .createRangePartition(any(), eq("reading_event_p202612"), any(), any());
+
+        partitionManager.maintainPartitions(LocalDate.of(2026, 10, 18));
+
+        verify(partitionMapper, never()).createRangePartition(any(), eq("reading_event_p202611"), any(), any());
+        verify(partitionMapper).createTableLike("reading_event_p202611", "reading_event");
+        verify(partitionMapper).attachRangePartition("reading_event", "reading_event_p202611", "2026-11-01", "2026-12-01");
+        verify(partitionMapper).createRangePartition("reading_event", "reading_event_p202701", "2027-01-01", "2027-02-01");
+        assertEquals(2, meterRegistry.get("analytics.partitions.created").counter().count());
+        assertEquals(1, meterRegistry.get("analytics.partitions.failed").counter().count());
+    }
+
+    @Test
+    void testDropPartitionsBefore_DropsOnlyMonthsEntirelyBeforeCutoff() {
+        // July 2026 still holds rows newer than the cutoff
+        int dropped = partitionManager.dropPartitionsBefore(LocalDate.of(2026, 7, 20));
+
+        assertEquals(1, dropped);
+        verify(partitionMapper).detachPartition("reading_event", "reading_event_p202401");
+        verify(partitionMapper).dropTable("reading_event_p202401");
+        verify(partitionMapper, times(1)).dropTable(any());
+    }
+}
@@ -0,0 +1,73 @@
+package com.yushan.analytics_service.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class RedisUtilTest {
+
+    private RedisUtil redisUtil;
+    private RedisTemplate<String, Object> redisTemplate;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisUtil = new RedisUtil();
+        redisTemplate = mock(RedisTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        ReflectionTestUtils.setField(redisUtil, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(redisUtil, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(redisUtil, "scanCount", 2);
+    }
+
+    @Test
+    void testKeys_UsesScanInsteadOfKeys() {
+        mockScan(List.of("gamification:a", "gamification:b", "gamification:c"));
+
+        Set<String> keys = redisUtil.keys("gamification:*");
+
+        assertEquals(Set.of("gamification:a", "gamification:b", "gamification:c"), keys);
+        verify(redisTemplate, never()).keys(any());
+        assertEquals(3, meterRegistry.summary("redis.scan.keys.scanned", "operation", "keys").totalAmount());
+    }
+
+    @Test
+    void testDeleteByPattern_UnlinksInBatches() {
+        mockScan(List.of("user:profile:1", "user:level:1", "user:badge:1"));
+        when(redisTemplate.unlink(anyCollection())).thenAnswer(invocation ->
+                (long) invocation.<List<String>>getArgument(0).size());
+
+        long deleted = redisUtil.deleteByPattern("user:*:1");
+
+        assertEquals(3, deleted);
+        verify(redisTemplate).unlink(List.of("user:profile:1", "user:level:1"));
+        verify(redisTemplate).unlink(List.of("user:badge:1"));
+        verify(redisTemplate, never()).delete(anyCollection());
+        assertEquals(3, meterRegistry.summary("redis.scan.keys.deleted", "operation", "delete").totalAmount());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockScan(List<String> keys) {
+        Iterator<String> iterator = keys.iterator();
+        Cursor<String> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next());
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+    }
+}